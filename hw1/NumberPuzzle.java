@@ -2,6 +2,7 @@
 // Time for 16 Steps (Displaced): 0.531 seconds
 // Time for 16 Steps (Manhattan): 0.399 seconds
 // Time for 40 Steps (Manhattan): 5.222 seconds
+// (hand timings; bench/NumberPuzzleBench.java measures the same things with JMH)
 
 // Manhattan distance is the best heuristic out of the three because
 // it is the closest to the actual problem cost compared to the other two heuristics
@@ -14,70 +15,390 @@
 
 import java.util.*;
 import java.lang.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 // Solving the 16-puzzle with A* using two heuristics:
 // tiles-out-of-place and total-distance-to-move
+// (boards from 2x2 up to 5x5 work too; the width is read off the first row)
 public class NumberPuzzle implements Comparable<NumberPuzzle>{
-    public static final int PUZZLE_WIDTH = 4;
+    public static final int PUZZLE_WIDTH = 4;  // default width
+    public static final int MAX_WIDTH = 5;     // widest board that packs into two longs
     public static final int BLANK = 0;
     // BETTER:  false for tiles-displaced heuristic, true for Manhattan distance
     public static boolean BETTER = true;
+    // Flag bit on a bestCost entry marking that the state has been expanded
+    static final int CLOSED = 1 << 30;
+    // DISTANCE[width][tile][cell]: moves tile needs from cell to reach its goal cell
+    static final int[][][] DISTANCE = new int[MAX_WIDTH + 1][][];
+    static {
+        for (int w = 2; w <= MAX_WIDTH; w++) {
+            DISTANCE[w] = new int[w * w][w * w];
+            for (int tile = 1; tile < w * w; tile++) {
+                for (int cell = 0; cell < w * w; cell++) {
+                    DISTANCE[w][tile][cell] = Math.abs(cell / w - (tile - 1) / w)
+                            + Math.abs(cell % w - (tile - 1) % w);
+                }
+            }
+        }
+    }
 
-    // You probably don't need to touch this representation, but if you want
-    // to, notice that you need to keep the tiles and blank location consistent
-    private int[][] tiles;  // [row][column]
+    // Cell i = r * width + c is a bit field at bits cellBits * i of the 128-bit number
+    // tilesHigh:tiles.  Up to 4x4 that is a 4-bit nibble in tiles alone (tilesHigh stays 0);
+    // 5x5 needs 5 bits a cell, and cell 12 straddles the two words.
+    // The tiles and blank location still have to be kept consistent.
+    private final int width;
+    private long tiles;
+    private long tilesHigh;
     private int blank_r, blank_c;   // blank row and column
     public int costSoFar; // cost of path to this state from the original state
+    private Heuristic heuristic; // estimate of the moves left, chosen per solve()
+    private int heuristicCost; // cached heuristic(), kept current by move()
     public NumberPuzzle parent; // what is the parent state of this state
 
     public static void main(String[] args) {
+        SearchOptions options = new SearchOptions();
+        boolean idaStar = false;
+        boolean anytime = false;
+        int workers = 0;
+        int batchThreads = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("buckets")) {
+                options.bucketQueue = true;
+            } else if (args[i].equals("ida")) {
+                idaStar = true;
+            } else if (args[i].equals("anytime") && i + 1 < args.length) {
+                // java NumberPuzzle anytime 100: best path found in 100 ms
+                anytime = true;
+                options.timeLimitMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("parallel") && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("batch")) {
+                // java NumberPuzzle batch [threads] < puzzles, one blank line between puzzles
+                batchThreads = Runtime.getRuntime().availableProcessors();
+                if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                    batchThreads = Integer.parseInt(args[++i]);
+                }
+            } else if (args[i].equals("buildpdb") && i + 1 < args.length) {
+                // offline step: java NumberPuzzle buildpdb pdb663.bin
+                try {
+                    PatternDatabase.build(PatternDatabase.PARTITION_663, args[i + 1]);
+                } catch (IOException e) {
+                    System.err.println("Could not write pattern database: " + e.getMessage());
+                }
+                return;
+            } else if (args[i].equals("pdb") && i + 1 < args.length) {
+                try {
+                    options.heuristic = PatternDatabase.load(args[++i]);
+                } catch (IOException e) {
+                    System.err.println("Could not load pattern database: " + e.getMessage());
+                    System.exit(0);
+                }
+            } else if (args[i].equals("cache") && i + 1 < args.length) {
+                // java NumberPuzzle cache solutions.bin: reuse and record optimal paths
+                try {
+                    options.cache = SolutionCache.open(args[++i], 1 << 20);
+                } catch (IOException e) {
+                    System.err.println("Could not open solution cache: " + e.getMessage());
+                    System.exit(0);
+                }
+            } else if (args[i].equals("heuristic") && i + 1 < args.length) {
+                options.heuristic = heuristicNamed(args[++i]);
+                if (options.heuristic == null) {
+                    System.err.println("Unknown heuristic " + args[i]
+                            + "; try misplaced, manhattan, linear or walking.");
+                    System.exit(0);
+                }
+            } else if (args[i].equals("maxnodes") && i + 1 < args.length) {
+                options.maxExpansions = Long.parseLong(args[++i]);
+            } else if (args[i].equals("maxstates") && i + 1 < args.length) {
+                options.maxStates = Long.parseLong(args[++i]);
+            } else if (args[i].equals("stats")) {
+                // search counters on stderr, every 2^20 expansions and at the end
+                options.listener = new SearchListener() {
+                    public void progress(SearchStats stats) {
+                        System.err.println("progress: " + stats);
+                    }
+
+                    public void finished(SearchResult result) {
+                        System.err.println(result.status.toString().toLowerCase() + ": " + result.stats);
+                    }
+                };
+            }
+        }
+        if (batchThreads > 0) {
+            try {
+                solveBatch(new BufferedReader(new InputStreamReader(System.in)),
+                        new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16),
+                        options, idaStar, batchThreads);
+            } catch (IOException e) {
+                System.err.println("Batch failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
         NumberPuzzle myPuzzle = readPuzzle();
-        LinkedList<NumberPuzzle> solutionSteps = myPuzzle.solve();
-        printSteps(solutionSteps);
+        SearchResult result;
+        try {
+            if (idaStar) {
+                result = myPuzzle.searchIDAStar(options);
+            } else if (anytime) {
+                result = myPuzzle.searchAnytime(options);
+            } else if (workers > 0) {
+                result = myPuzzle.searchParallel(options, workers);
+            } else {
+                result = myPuzzle.search(options);
+            }
+        } catch (IllegalArgumentException e) {
+            // a heuristic that does not cover this board width
+            System.err.println("Cannot solve this board: " + e.getMessage());
+            return;
+        }
+        if (result.status == SearchResult.Status.SOLVED) {
+            printSteps(result.steps);
+            if (result.suboptimality > 1) {
+                System.err.println(result);
+            }
+        } else {
+            System.out.println(result);
+        }
+    }
+
+    // Knobs for a single call to solve(); the defaults reproduce solve() with no arguments
+    static class SearchOptions {
+        // bucketQueue: false for the binary heap frontier, true for the f-indexed bucket queue
+        public boolean bucketQueue = false;
+        // heuristic: null for the one BETTER picks
+        public Heuristic heuristic = null;
+        // Give up, with SearchResult.Status.BUDGET_EXCEEDED, after expanding this many nodes
+        // or holding this many distinct states (which bounds memory); 0 for no limit.
+        // IDA* holds none, so it counts every node it visits as a state instead.
+        public long maxExpansions = 0;
+        public long maxStates = 0;
+        // listener: told about progress and the outcome; null for none
+        public SearchListener listener = null;
+        public long reportEvery = 1 << 20;
+        // searchAnytime(): the first weight on the heuristic, how much to lower it each round,
+        // and how long to keep improving the path; a time limit of 0 runs until it is optimal
+        public double anytimeWeight = 3.0;
+        public double anytimeStep = 0.5;
+        public long timeLimitMillis = 0;
+        // cache: optimal paths found before, consulted first and added to; null for none
+        public SolutionCache cache = null;
+
+        boolean overBudget(long expanded, long states) {
+            return (maxExpansions > 0 && expanded >= maxExpansions)
+                    || (maxStates > 0 && states >= maxStates);
+        }
+
+        Heuristic heuristic() {
+            if (heuristic != null) {
+                return heuristic;
+            }
+            return BETTER ? MANHATTAN_DISTANCE : TILES_OUT_OF_PLACE;
+        }
+
+        IntFrontier newIntFrontier() {
+            return bucketQueue ? new IntBucketQueue() : new IntHeap();
+        }
     }
 
     NumberPuzzle() {
-        tiles = new int[PUZZLE_WIDTH][PUZZLE_WIDTH];
+        this(PUZZLE_WIDTH);
     }
 
-    static NumberPuzzle readPuzzle() {
-        NumberPuzzle newPuzzle = new NumberPuzzle();
+    NumberPuzzle(int width) {
+        if (width < 2 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("board width must be 2 to " + MAX_WIDTH + ", not " + width);
+        }
+        this.width = width;
+        heuristic = BETTER ? MANHATTAN_DISTANCE : TILES_OUT_OF_PLACE;
+    }
 
+    // Builds a 4x4 puzzle from a packed board, e.g. one stored in a LongIntMap
+    static NumberPuzzle fromPacked(long packed) {
+        return fromPacked(PUZZLE_WIDTH, packed, 0);
+    }
+
+    static NumberPuzzle fromPacked(int width, long packed, long packedHigh) {
+        NumberPuzzle puzzle = new NumberPuzzle(width);
+        puzzle.tiles = packed;
+        puzzle.tilesHigh = packedHigh;
+        for (int i = 0; i < width * width; i++) {
+            if (puzzle.cell(i) == BLANK) {
+                puzzle.blank_r = i / width;
+                puzzle.blank_c = i % width;
+            }
+        }
+        puzzle.heuristicCost = puzzle.heuristic();
+        return puzzle;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public long packed() {
+        return tiles;
+    }
+
+    public long packedHigh() {
+        return tilesHigh;
+    }
+
+    public int tileAt(int row, int column) {
+        return cell(row * width + column);
+    }
+
+    private void setTile(int row, int column, int value) {
+        setCell(row * width + column, value);
+    }
+
+    // tile in cell i = row * width + column
+    int cell(int i) {
+        if (width <= 4) {
+            return (int) (tiles >>> (i << 2)) & 0xF;
+        }
+        int shift = 5 * i;
+        if (shift >= 64) {
+            return (int) (tilesHigh >>> (shift - 64)) & 0x1F;
+        }
+        if (shift <= 64 - 5) {
+            return (int) (tiles >>> shift) & 0x1F;
+        }
+        return (int) ((tiles >>> shift) | (tilesHigh << (64 - shift))) & 0x1F;
+    }
+
+    private void setCell(int i, int value) {
+        if (width <= 4) {
+            int shift = i << 2;
+            tiles = (tiles & ~(0xFL << shift)) | ((long) value << shift);
+            return;
+        }
+        int shift = 5 * i;
+        if (shift < 64) {
+            // bits past the top of the low word fall off here and are written below
+            tiles = (tiles & ~(0x1FL << shift)) | ((long) value << shift);
+        }
+        if (shift > 64 - 5) {
+            int highShift = shift - 64;
+            if (highShift >= 0) {
+                tilesHigh = (tilesHigh & ~(0x1FL << highShift)) | ((long) value << highShift);
+            } else {
+                tilesHigh = (tilesHigh & ~(0x1FL >>> -highShift)) | ((long) value >>> -highShift);
+            }
+        }
+    }
+
+    static NumberPuzzle readPuzzle() {
         Scanner myScanner = new Scanner(System.in);
-        int row = 0;
-        while (myScanner.hasNextLine() && row < PUZZLE_WIDTH) {
-            String line = myScanner.nextLine();
-            String[] numStrings = line.split(" ");
-            for (int i = 0; i < PUZZLE_WIDTH; i++) {
-                if (numStrings[i].equals("-")) {
-                    newPuzzle.tiles[row][i] = BLANK;
-                    newPuzzle.blank_r = row;
-                    newPuzzle.blank_c = i;
-                } else {
-                	try {
-                    	newPuzzle.tiles[row][i] = Integer.parseInt(numStrings[i]);
-                    } catch (Exception e) {
-                    	System.err.println("Bad format!  Bailing out.");
-                    	System.exit(0);
+        if (!myScanner.hasNextLine()) {
+            System.err.println("Bad format!  Bailing out.");
+            System.exit(0);
+        }
+        String line = myScanner.nextLine();
+        int width = widthOf(line);
+        if (width == 0) {
+            System.err.println("Bad format!  Bailing out.");
+            System.exit(0);
+        }
+        NumberPuzzle newPuzzle = new NumberPuzzle(width);
+        boolean ok = newPuzzle.readRow(0, line);
+        int row = 1;
+        while (ok && myScanner.hasNextLine() && row < newPuzzle.width) {
+            ok = newPuzzle.readRow(row, myScanner.nextLine());
+            row++;
+        }
+        if (!ok) {
+            System.err.println("Bad format!  Bailing out.");
+            System.exit(0);
+        }
+        newPuzzle.heuristicCost = newPuzzle.heuristic();
+        return newPuzzle;
+    }
+
+    // A board is as wide as its first row has entries; 0 if that is no board we can solve
+    private static int widthOf(String firstRow) {
+        int width = firstRow.trim().split(" +").length;
+        return width < 2 || width > MAX_WIDTH ? 0 : width;
+    }
+
+    // Next puzzle from a stream of puzzles separated by blank lines, or null at the end.
+    // A badly formatted puzzle is an IOException, so a batch can stop cleanly.
+    static NumberPuzzle readPuzzle(BufferedReader in) throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+        int width = widthOf(line);
+        if (width == 0) {
+            throw new IOException("bad format: first row must have 2 to " + MAX_WIDTH + " entries");
+        }
+        NumberPuzzle newPuzzle = new NumberPuzzle(width);
+        for (int row = 0; row < newPuzzle.width; row++) {
+            if (line == null) {
+                throw new IOException("bad format: input ends after " + row + " rows");
+            }
+            if (!newPuzzle.readRow(row, line)) {
+                throw new IOException("bad format in row " + (row + 1) + ": " + line.trim());
+            }
+            line = row + 1 < newPuzzle.width ? in.readLine() : null;
+        }
+        newPuzzle.heuristicCost = newPuzzle.heuristic();
+        return newPuzzle;
+    }
+
+    // false if the line is not a row of this puzzle
+    private boolean readRow(int row, String line) {
+        String[] numStrings = line.trim().split(" +");
+        if (numStrings.length < width) {
+            return false;
+        }
+        for (int i = 0; i < width; i++) {
+            if (numStrings[i].equals("-")) {
+                setTile(row, i, BLANK);
+                blank_r = row;
+                blank_c = i;
+            } else {
+            	try {
+                    int value = Integer.parseInt(numStrings[i]);
+                    if (value <= 0 || value >= width * width) {
+                        return false;
                     }
+                	setTile(row, i, value);
+                } catch (NumberFormatException e) {
+                	return false;
                 }
             }
-            row++;
         }
-        return newPuzzle;
+        return true;
     }
 
     public String toString() {
         String out = "";
-        for (int i = 0; i < PUZZLE_WIDTH; i++) {
-            for (int j = 0; j < PUZZLE_WIDTH; j++) {
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
                 if (j > 0) {
                     out += " ";
                 }
-                if (tiles[i][j] == BLANK) {
+                if (tileAt(i, j) == BLANK) {
                     out += "-";
                 } else {
-                    out += tiles[i][j];
+                    out += tileAt(i, j);
                 }
             }
             out += "\n";
@@ -86,20 +407,19 @@ public class NumberPuzzle implements Comparable<NumberPuzzle>{
     }
 
     public NumberPuzzle copy() {
-        NumberPuzzle clone = new NumberPuzzle();
+        NumberPuzzle clone = new NumberPuzzle(width);
         clone.blank_r = blank_r;
         clone.blank_c = blank_c;
         clone.costSoFar = costSoFar;
-        for (int i = 0; i < PUZZLE_WIDTH; i++) {
-            for (int j = 0; j < PUZZLE_WIDTH; j++) {
-                clone.tiles[i][j] = this.tiles[i][j];
-            }
-        }
+        clone.heuristic = heuristic;
+        clone.heuristicCost = heuristicCost;
+        clone.tiles = tiles;
+        clone.tilesHigh = tilesHigh;
         return clone;
     }
 
     public int hashCode() {
-        return java.util.Arrays.deepHashCode(this.tiles);
+        return Long.hashCode(LongIntMap.hash(tiles, tilesHigh));
     }
 
     public boolean equals(Object o) {
@@ -107,14 +427,7 @@ public class NumberPuzzle implements Comparable<NumberPuzzle>{
     		return false;
     	}
         NumberPuzzle other = (NumberPuzzle) o;
-    	for (int i = 0; i < PUZZLE_WIDTH; i++) {
-            for (int j = 0; j < PUZZLE_WIDTH; j++) {
-                if (tiles[i][j] != other.tiles[i][j]) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return width == other.width && tiles == other.tiles && tilesHigh == other.tilesHigh;
     }
 
     // This helper should assist in ensuring your solution is the same as
@@ -141,7 +454,7 @@ public class NumberPuzzle implements Comparable<NumberPuzzle>{
             rightResult.parent = this;
             legal.add(rightResult);
         }
-        if (blank_r < PUZZLE_WIDTH - 1) {
+        if (blank_r < width - 1) {
             // Move tile up (blank goes down)
             NumberPuzzle upResult = this.copy();
             upResult.move(blank_r+1, blank_c);
@@ -149,7 +462,7 @@ public class NumberPuzzle implements Comparable<NumberPuzzle>{
             upResult.parent = this;
             legal.add(upResult);
         }
-        if (blank_c < PUZZLE_WIDTH - 1) {
+        if (blank_c < width - 1) {
             // Move tile left (blank goes right)
             NumberPuzzle leftResult = this.copy();
             leftResult.move(blank_r,blank_c+1);
@@ -163,9 +476,14 @@ public class NumberPuzzle implements Comparable<NumberPuzzle>{
     public void move(int tile_row, int tile_column) {
         // This is only called in legalMoves(), which only does legal things.
         // So we're just going to plop the tile into the blank space,
-        // leaving a blank where it was.
-        tiles[blank_r][blank_c] = tiles[tile_row][tile_column];
-        tiles[tile_row][tile_column] = BLANK;
+        // leaving a blank where it was.  Only that tile has moved, so the
+        // heuristic updates the cached value rather than recomputing it.
+        int tile = tileAt(tile_row, tile_column);
+        int from = tile_row * width + tile_column;
+        int to = blank_r * width + blank_c;
+        heuristicCost = heuristic.afterMove(this, heuristicCost, tile, from, to);
+        setTile(blank_r, blank_c, tile);
+        setTile(tile_row, tile_column, BLANK);
         blank_r = tile_row;
         blank_c = tile_column;
     }
@@ -173,10 +491,10 @@ public class NumberPuzzle implements Comparable<NumberPuzzle>{
     // total numbers out of place
     public int tilesOutOfPlace() {
         int output = 0;
-        for (int i = 0; i < PUZZLE_WIDTH; i++) {
-            for (int j = 0; j < PUZZLE_WIDTH; j++) {
-                int value = tiles[i][j];
-                if (value != BLANK && value - 1 != i * PUZZLE_WIDTH + j) {
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
+                int value = tileAt(i, j);
+                if (value != BLANK && value - 1 != i * width + j) {
                     output += 1;
                 }
             }
@@ -192,20 +510,31 @@ public class NumberPuzzle implements Comparable<NumberPuzzle>{
     // sum of manhattan distances of all out of place tiles
     public int manhattanDistance() {
         int output = 0;
-        for (int i = 0; i < PUZZLE_WIDTH; i++) {
-            for (int j = 0; j < PUZZLE_WIDTH; j++) {
-                int value = tiles[i][j];
-                if (value != BLANK && value - 1 != i * PUZZLE_WIDTH + j) {
-                    output += manhattanDistanceHelper(i, j, (value - 1) / PUZZLE_WIDTH, (value - 1) % PUZZLE_WIDTH);
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
+                int value = tileAt(i, j);
+                if (value != BLANK && value - 1 != i * width + j) {
+                    output += manhattanDistanceHelper(i, j, (value - 1) / width, (value - 1) % width);
                 }
             }
         }
         return output;
     }
 
-    // cost function = heuristic cost + cost so far
+    // this board's heuristic, computed from scratch
+    public int heuristic() {
+        return heuristic.estimate(this);
+    }
+
+    // switches heuristics, refreshing the cached value
+    void useHeuristic(Heuristic h) {
+        heuristic = h.resolve(width);
+        heuristicCost = heuristic.estimate(this);
+    }
+
+    // cost function = heuristic cost + cost so far, using the cached heuristic
     public int totalCost() {
-        return costSoFar + (BETTER ? manhattanDistance() : tilesOutOfPlace());
+        return costSoFar + heuristicCost;
     }
 
     @Override
@@ -225,57 +554,480 @@ public class NumberPuzzle implements Comparable<NumberPuzzle>{
     }
 
     LinkedList<NumberPuzzle> solve() {
+        return solve(new SearchOptions());
+    }
+
+    // Shortest solution, or an empty list if there is none within the options' budget
+    LinkedList<NumberPuzzle> solve(SearchOptions options) {
+        return search(options).steps;
+    }
+
+    SearchResult search(SearchOptions options) {
         // Using pseudocode similar to one from Lecture 3, but instead of having table hold cost so far,
-        // Each node/NumberPuzzle holds costs so far and which node is its parent
-        LinkedList<NumberPuzzle> solution = new LinkedList<NumberPuzzle>();
-        PriorityQueue<NumberPuzzle> queue = new PriorityQueue<NumberPuzzle>();
-        HashSet<NumberPuzzle> closedSet = new HashSet<NumberPuzzle>();
-        NumberPuzzle current;
-        NumberPuzzle end = null;
+        // each node holds its cost so far and which node is its parent.  Nodes live in a
+        // NodeArena and are named by int index, and children are made by moving the tile on
+        // one scratch board, so the loop allocates no objects per node; only the boards on
+        // the solution path become NumberPuzzles at the end.
+        // bestCost maps a packed state to the cheapest cost so far seen for it, with CLOSED set
+        // once the state has been expanded, so it doubles as the closed set.
+        // The heap gets an entry for every child, as the original PriorityQueue did, so ties
+        // break the same way and the path is the one in correct_output.  Children that could
+        // only be skipped when polled go in as PLACEHOLDERs, with no node behind them; one
+        // already queued at the same cost is a real node, as either may come out first.
+        SearchResult result = new SearchResult();
+        SearchStats stats = result.stats;
+        stats.startClock();
+        if (cachedPath(options, result)) {
+            return result.finish(SearchResult.Status.SOLVED, options);
+        }
+        if (!solvable()) {
+            stats.setupNanos = stats.lap();
+            return result.finish(SearchResult.Status.UNSOLVABLE, options);
+        }
+        IntFrontier queue = options.newIntFrontier();
+        LongIntMap bestCost = new LongIntMap(width > 4);
+        NodeArena arena = new NodeArena(width > 4);
+        NumberPuzzle board = copy();  // scratch board each node is loaded into to expand it
+        board.costSoFar = 0;
+        board.parent = null;
+        int end = -1;
+        boolean keepTies = !options.bucketQueue;  // the bucket queue breaks ties its own way
 
-        queue.add(this);
+        board.useHeuristic(options.heuristic());
+        stats.heuristicCalls++;
+        int root = arena.add(board, -1);
+        queue.add(root, board.totalCost());
+        bestCost.put(board.tiles, board.tilesHigh, 0);
+        stats.peakFrontier = 1;
+        stats.setupNanos = stats.lap();
 
         // grabs the state with the lowest cost based on the cost function
-        while ((current = queue.poll()) != null) {
+        int current;
+        while ((current = queue.poll()) != NodeArena.NONE) {
 
-            // ignore if state has been processed already
-            if (closedSet.contains(current)) {
+            // ignore if state has been processed already, or reached more cheaply since queued
+            if (current == NodeArena.PLACEHOLDER) {
+                stats.closedHits++;
+                continue;
+            }
+            long state = arena.state[current];
+            long stateHigh = arena.stateHigh(current);
+            int g = arena.g[current];
+            int best = bestCost.get(state, stateHigh);
+            if ((best & CLOSED) != 0 || g > best) {
+                stats.closedHits++;
                 continue;
             }
 
             // if is solution, break out of loop
-            if (current.solved()) {
+            arena.load(current, board);
+            if (board.heuristicCost == 0 && board.solved()) {
                 end = current;
                 break;
             }
 
-            // add the new moves from the current state to priority queue
-            for (NumberPuzzle np : current.legalMoves()) {
-                queue.add(np);
+            if (options.overBudget(stats.expanded, bestCost.size())) {
+                stats.storedStates = bestCost.size();
+                stats.searchNanos = stats.lap();
+                return result.finish(SearchResult.Status.BUDGET_EXCEEDED, options);
+            }
+            stats.expanded++;
+
+            // add the new moves from the current state to priority queue, skipping
+            // states that are already queued at no higher cost; same order as legalMoves()
+            int r = board.blank_r;
+            int c = board.blank_c;
+            for (int dir = 0; dir < 4; dir++) {
+                int nr = r + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+                int nc = c + (dir == 1 ? -1 : dir == 3 ? 1 : 0);
+                if (nr < 0 || nr >= width || nc < 0 || nc >= width) {
+                    continue;
+                }
+                board.move(nr, nc);
+                board.costSoFar = g + 1;
+                stats.generated++;
+                stats.heuristicCalls++;  // move() updated the estimate
+                int seen = bestCost.get(board.tiles, board.tilesHigh);
+                if (seen == LongIntMap.MISSING || ((seen & CLOSED) == 0 && g + 1 < seen)) {
+                    bestCost.put(board.tiles, board.tilesHigh, g + 1);
+                    queue.add(arena.add(board, current), board.totalCost());
+                } else if (keepTies && seen == g + 1) {
+                    queue.add(arena.add(board, current), board.totalCost());
+                } else {
+                    stats.duplicates++;
+                    if (keepTies) {
+                        queue.add(NodeArena.PLACEHOLDER, board.totalCost());
+                    }
+                }
+                arena.load(current, board);
+            }
+
+            bestCost.put(state, stateHigh, g | CLOSED);
+            if (queue.size() > stats.peakFrontier) {
+                stats.peakFrontier = queue.size();
+            }
+            if (options.listener != null && stats.expanded % options.reportEvery == 0) {
+                options.listener.progress(stats);
+            }
+        }
+        stats.storedStates = bestCost.size();
+        stats.searchNanos = stats.lap();
+
+        // build the solution path from child -> parent up, following parent indices
+        for (int n = end; n != NodeArena.NONE; n = arena.parent[n]) {
+            NumberPuzzle step = new NumberPuzzle(width);
+            arena.load(n, step);
+            step.heuristic = board.heuristic;
+            if (!result.steps.isEmpty()) {
+                result.steps.getFirst().parent = step;
+            }
+            result.steps.push(step);
+        }
+        stats.pathNanos = stats.lap();
+
+        return result.finish(SearchResult.Status.SOLVED, options);
+    }
+
+    // Fills in result from options.cache, if this board lies on a path solved before
+    private boolean cachedPath(SearchOptions options, SearchResult result) {
+        if (options.cache == null || !options.cache.lookup(this, options.heuristic(), result.steps)) {
+            return false;
+        }
+        result.fromCache = true;
+        result.stats.storedStates = result.steps.size();
+        result.stats.setupNanos = result.stats.lap();
+        return true;
+    }
+
+    // Iterative-deepening A*: repeated depth-first searches bounded by f, each bound the
+    // smallest f that overflowed the last one.  Memory is O(solution depth) because a
+    // single board is moved and un-moved in place; only the final path is materialized.
+    LinkedList<NumberPuzzle> solveIDAStar(SearchOptions options) {
+        return searchIDAStar(options).steps;
+    }
+
+    SearchResult searchIDAStar(SearchOptions options) {
+        SearchResult result = new SearchResult();
+        SearchStats stats = result.stats;
+        stats.startClock();
+        if (cachedPath(options, result)) {
+            return result.finish(SearchResult.Status.SOLVED, options);
+        }
+        if (!solvable()) {
+            stats.setupNanos = stats.lap();
+            return result.finish(SearchResult.Status.UNSOLVABLE, options);
+        }
+        NumberPuzzle board = copy();
+        board.costSoFar = 0;
+        board.parent = null;
+        board.useHeuristic(options.heuristic());
+        stats.heuristicCalls++;
+        stats.setupNanos = stats.lap();
+
+        int bound = board.heuristicCost;
+        int[] path = new int[bound + 1];  // path[g] = blank cell after move g + 1
+        int t;
+        while ((t = board.boundedSearch(0, bound, -1, path, options, stats)) != FOUND) {
+            if (t == OVER_BUDGET) {
+                stats.searchNanos = stats.lap();
+                return result.finish(SearchResult.Status.BUDGET_EXCEEDED, options);
+            }
+            bound = t;
+            if (path.length <= bound) {
+                path = new int[bound + 1];
+            }
+        }
+
+        stats.searchNanos = stats.lap();
+
+        // replay the moves on fresh copies so callers get the same format as solve()
+        NumberPuzzle step = copy();
+        step.costSoFar = 0;
+        step.parent = null;
+        step.useHeuristic(options.heuristic());
+        result.steps.add(step);
+        for (int g = 0; !step.solved(); g++) {
+            NumberPuzzle next = step.copy();
+            next.move(path[g] / width, path[g] % width);
+            next.costSoFar = step.costSoFar + 1;
+            next.parent = step;
+            result.steps.add(next);
+            step = next;
+        }
+        stats.storedStates = result.steps.size();
+        stats.pathNanos = stats.lap();
+        return result.finish(SearchResult.Status.SOLVED, options);
+    }
+
+    // Hash-distributed A* on several threads; see ParallelAStar
+    LinkedList<NumberPuzzle> solveParallel(SearchOptions options, int workers) {
+        return searchParallel(options, workers).steps;
+    }
+
+    SearchResult searchParallel(SearchOptions options, int workers) {
+        SearchResult result = new SearchResult();
+        result.stats.startClock();
+        if (cachedPath(options, result)) {
+            return result.finish(SearchResult.Status.SOLVED, options);
+        }
+        if (!solvable()) {
+            result.stats.setupNanos = result.stats.lap();
+            return result.finish(SearchResult.Status.UNSOLVABLE, options);
+        }
+        NumberPuzzle root = copy();
+        root.costSoFar = 0;
+        root.parent = null;
+        root.useHeuristic(options.heuristic());
+        return new ParallelAStar(options, workers, root).run(result);
+    }
+
+    // Anytime repairing A* (ARA*).  Search first with nodes ordered by g + weight * h, which
+    // overrates the distance left and so dives to some solution fast, then lower the weight
+    // and search again, until the time limit runs out or a round at weight 1 proves the path
+    // optimal.  A round does not start over: it keeps the open list left by the last one,
+    // re-sorted for the new weight, plus the states that got cheaper after being expanded
+    // (each state is expanded at most once per round).  With a consistent heuristic the
+    // path returned costs at most result.suboptimality times the optimum.
+    LinkedList<NumberPuzzle> solveAnytime(SearchOptions options) {
+        return searchAnytime(options).steps;
+    }
+
+    SearchResult searchAnytime(SearchOptions options) {
+        SearchResult result = new SearchResult();
+        SearchStats stats = result.stats;
+        stats.startClock();
+        if (cachedPath(options, result)) {
+            return result.finish(SearchResult.Status.SOLVED, options);
+        }
+        long deadline = options.timeLimitMillis > 0
+                ? System.nanoTime() + options.timeLimitMillis * 1000000L : Long.MAX_VALUE;
+        if (!solvable()) {
+            stats.setupNanos = stats.lap();
+            return result.finish(SearchResult.Status.UNSOLVABLE, options);
+        }
+        NumberPuzzle start = copy();
+        start.costSoFar = 0;
+        start.parent = null;
+        start.useHeuristic(options.heuristic());
+        stats.heuristicCalls++;
+        LongIntMap bestCost = new LongIntMap(width > 4);
+        bestCost.put(start.tiles, start.tilesHigh, 0);
+        // what is left to expand between rounds, stale copies included
+        ArrayList<NumberPuzzle> open = new ArrayList<NumberPuzzle>();
+        ArrayList<NumberPuzzle> inconsistent = new ArrayList<NumberPuzzle>();
+        open.add(start);
+        NumberPuzzle goal = start.solved() ? start : null;
+        double weight = Math.max(1, options.anytimeWeight);
+        boolean stopped = false;
+        stats.setupNanos = stats.lap();
+
+        while (true) {
+            WeightedOrder order = new WeightedOrder(weight);
+            PriorityQueue<NumberPuzzle> queue =
+                    new PriorityQueue<NumberPuzzle>(Math.max(1, open.size() + inconsistent.size()), order);
+            queue.addAll(open);
+            queue.addAll(inconsistent);
+            open.clear();
+            inconsistent.clear();
+            LongIntMap closed = new LongIntMap(width > 4);
+
+            // a round ends once nothing queued can beat the incumbent at this weight
+            while (!queue.isEmpty() && (goal == null || order.key(queue.peek()) < goal.costSoFar)) {
+                NumberPuzzle current = queue.poll();
+                if (current.costSoFar > bestCost.get(current.tiles, current.tilesHigh)
+                        || closed.get(current.tiles, current.tilesHigh) != LongIntMap.MISSING) {
+                    stats.closedHits++;
+                    continue;
+                }
+                if (options.overBudget(stats.expanded, bestCost.size())
+                        || ((stats.expanded & 255) == 0 && System.nanoTime() > deadline)) {
+                    queue.add(current);
+                    stopped = true;
+                    break;
+                }
+                closed.put(current.tiles, current.tilesHigh, 1);
+                stats.expanded++;
+                for (NumberPuzzle np : current.legalMoves()) {
+                    stats.generated++;
+                    stats.heuristicCalls++;  // move() updated np's estimate
+                    int seen = bestCost.get(np.tiles, np.tilesHigh);
+                    if (seen != LongIntMap.MISSING && np.costSoFar >= seen) {
+                        stats.duplicates++;
+                        continue;
+                    }
+                    bestCost.put(np.tiles, np.tilesHigh, np.costSoFar);
+                    if (np.solved()) {
+                        // the goal has nothing to expand; it only has to be remembered
+                        if (goal == null || np.costSoFar < goal.costSoFar) {
+                            goal = np;
+                        }
+                    } else if (closed.get(np.tiles, np.tilesHigh) != LongIntMap.MISSING) {
+                        inconsistent.add(np);
+                    } else {
+                        queue.add(np);
+                    }
+                }
+                if (queue.size() > stats.peakFrontier) {
+                    stats.peakFrontier = queue.size();
+                }
+                if (options.listener != null && stats.expanded % options.reportEvery == 0) {
+                    options.listener.progress(stats);
+                }
+            }
+            open.addAll(queue);
+            if (goal == null) {
+                // out of time or budget before the first solution
+                stats.storedStates = bestCost.size();
+                stats.searchNanos = stats.lap();
+                return result.finish(SearchResult.Status.BUDGET_EXCEEDED, options);
+            }
+
+            // nothing left costs less than lowerBound, so neither can the optimal path
+            int lowerBound = goal.costSoFar;
+            for (ArrayList<NumberPuzzle> list : Arrays.asList(open, inconsistent)) {
+                for (NumberPuzzle p : list) {
+                    if (p.costSoFar == bestCost.get(p.tiles, p.tilesHigh)) {
+                        lowerBound = Math.min(lowerBound, p.totalCost());
+                    }
+                }
             }
+            result.suboptimality = lowerBound >= goal.costSoFar ? 1
+                    : Math.min(weight, (double) goal.costSoFar / lowerBound);
+            if (stopped || result.suboptimality <= 1 || weight <= 1) {
+                break;
+            }
+            weight = Math.max(1, Math.min(weight - options.anytimeStep, result.suboptimality));
+        }
+        stats.storedStates = bestCost.size();
+        stats.searchNanos = stats.lap();
+
+        for (NumberPuzzle p = goal; p != null; p = p.parent) {
+            result.steps.push(p);
+        }
+        stats.pathNanos = stats.lap();
+        return result.finish(SearchResult.Status.SOLVED, options);
+    }
+
+    // Orders boards by g + weight * h, breaking ties toward the goal (smaller h)
+    static final class WeightedOrder implements Comparator<NumberPuzzle> {
+        final double weight;
+
+        WeightedOrder(double weight) {
+            this.weight = weight;
+        }
+
+        double key(NumberPuzzle p) {
+            return p.costSoFar + weight * p.heuristicCost;
+        }
 
-            closedSet.add(current);
+        public int compare(NumberPuzzle a, NumberPuzzle b) {
+            int c = Double.compare(key(a), key(b));
+            return c != 0 ? c : Integer.compare(a.heuristicCost, b.heuristicCost);
         }
+    }
 
-        // build the solution path from child -> parent up
-        while (end != null) {
-            solution.push(end);
-            end = end.parent;
+    static final int FOUND = -1;
+    static final int OVER_BUDGET = -2;
+
+    // Depth-first search below bound from this board, which is g moves from the start.
+    // Returns FOUND with the moves left in path, OVER_BUDGET once options.maxExpansions
+    // nodes have been expanded or options.maxStates visited (over every bound so far), or
+    // else the smallest f that exceeded bound.
+    // previousBlank is where the blank just came from; moving it back would only undo a move.
+    // There is no open list, so stats.peakFrontier records the deepest path instead.
+    private int boundedSearch(int g, int bound, int previousBlank, int[] path,
+                              SearchOptions options, SearchStats stats) {
+        int f = g + heuristicCost;
+        if (f > bound) {
+            return f;
+        }
+        if (heuristicCost == 0 && solved()) {
+            return FOUND;
+        }
+        if (options.overBudget(stats.expanded, stats.generated + 1)) {  // + 1 for the start
+            return OVER_BUDGET;
+        }
+        stats.expanded++;
+        if (g > stats.peakFrontier) {
+            stats.peakFrontier = g;
         }
+        if (options.listener != null && stats.expanded % options.reportEvery == 0) {
+            options.listener.progress(stats);
+        }
+        int r = blank_r;
+        int c = blank_c;
+        int here = r * width + c;
+        int min = Integer.MAX_VALUE;
+        // same neighbor order as legalMoves(): blank goes up, left, down, right
+        for (int dir = 0; dir < 4; dir++) {
+            int nr = r + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+            int nc = c + (dir == 1 ? -1 : dir == 3 ? 1 : 0);
+            if (nr < 0 || nr >= width || nc < 0 || nc >= width) {
+                continue;
+            }
+            int next = nr * width + nc;
+            if (next == previousBlank) {
+                continue;
+            }
+            move(nr, nc);
+            stats.generated++;
+            stats.heuristicCalls += 2;  // move() here and the undo below
+            path[g] = next;
+            int t = boundedSearch(g + 1, bound, here, path, options, stats);
+            // undo: slide the tile back into the cell it came from
+            move(r, c);
+            if (t == FOUND || t == OVER_BUDGET) {
+                return t;
+            }
+            if (t < min) {
+                min = t;
+            }
+        }
+        return min;
+    }
 
-        return solution;
+    // Whether the goal can be reached at all.  Every move swaps the blank with a neighbor,
+    // flipping the parity of the board's permutation and of the blank's distance from its
+    // goal cell together, so the two parities must match.  Constant time: one pass over
+    // the cycles of the permutation.  Boards that repeat or skip a tile are unsolvable too.
+    public boolean solvable() {
+        final int cells = width * width;
+        int values = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            values |= 1 << cell(cell);
+        }
+        if (values != (1 << cells) - 1) {
+            return false;
+        }
+        int seen = 0;
+        int swaps = 0;
+        for (int start = 0; start < cells; start++) {
+            if ((seen & (1 << start)) != 0) {
+                continue;
+            }
+            // follow the cycle through start: the tile in a cell belongs in the next one
+            int length = 0;
+            for (int cell = start; (seen & (1 << cell)) == 0; length++) {
+                seen |= 1 << cell;
+                int tile = cell(cell);
+                cell = tile == BLANK ? cells - 1 : tile - 1;
+            }
+            swaps += length - 1;  // a cycle of length k is k - 1 swaps
+        }
+        int blankDistance = (width - 1 - blank_r) + (width - 1 - blank_c);
+        return (swaps + blankDistance) % 2 == 0;
     }
 
     // solved() returns true if the puzzle has reached its goal state
     public boolean solved() {
         int shouldBe = 1;
-        for (int i = 0; i < PUZZLE_WIDTH; i++) {
-            for (int j = 0; j < PUZZLE_WIDTH; j++) {
-                if (tiles[i][j] != shouldBe) {
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
+                if (tileAt(i, j) != shouldBe) {
                     return false;
                 } else {
                     // Take advantage of BLANK == 0
-                    shouldBe = (shouldBe + 1) % (PUZZLE_WIDTH*PUZZLE_WIDTH);
+                    shouldBe = (shouldBe + 1) % (width*width);
                 }
             }
         }
@@ -288,4 +1040,1509 @@ public class NumberPuzzle implements Comparable<NumberPuzzle>{
         }
     }
 
+    // Solves every puzzle in the stream on a pool of threads, paying JVM startup and JIT
+    // warm-up once.  Heuristic tables in options are read-only and shared by all threads.
+    // Solutions are written in input order, each under a "Puzzle <n>: <moves> moves" line
+    // (or "Puzzle <n>: " and why there is none, e.g. an exceeded budget);
+    // at most a few puzzles per thread are read ahead, so memory stays flat on long streams.
+    // A badly formatted puzzle ends the batch with an IOException naming it, once the
+    // puzzles before it have been written.
+    static void solveBatch(BufferedReader in, BufferedWriter out, final SearchOptions options,
+                           final boolean idaStar, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<SearchResult>> pending = new ArrayDeque<Future<SearchResult>>();
+        int written = 0;
+        try {
+            NumberPuzzle puzzle;
+            while ((puzzle = readBatchPuzzle(in, out, pending, written)) != null) {
+                final NumberPuzzle p = puzzle;
+                pending.add(pool.submit(new Callable<SearchResult>() {
+                    public SearchResult call() {
+                        return idaStar ? p.searchIDAStar(options) : p.search(options);
+                    }
+                }));
+                if (pending.size() >= 4 * threads) {
+                    writeSolution(out, ++written, pending.poll());
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeSolution(out, ++written, pending.poll());
+            }
+        } finally {
+            pool.shutdownNow();
+            out.flush();
+        }
+    }
+
+    // readPuzzle(in), but on a bad puzzle the ones before it are written out first, and the
+    // error names the puzzle by its number
+    private static NumberPuzzle readBatchPuzzle(BufferedReader in, BufferedWriter out,
+                                                ArrayDeque<Future<SearchResult>> pending,
+                                                int written) throws IOException {
+        try {
+            return readPuzzle(in);
+        } catch (IOException e) {
+            int number = written + pending.size() + 1;
+            while (!pending.isEmpty()) {
+                writeSolution(out, ++written, pending.poll());
+            }
+            throw new IOException("puzzle " + number + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeSolution(BufferedWriter out, int number,
+                                      Future<SearchResult> pending) throws IOException {
+        SearchResult result;
+        try {
+            result = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted waiting for puzzle " + number, e);
+        } catch (ExecutionException e) {
+            throw new IOException("puzzle " + number + " failed", e.getCause());
+        }
+        if (result.status != SearchResult.Status.SOLVED) {
+            out.write("Puzzle " + number + ": " + result + "\n\n");
+            return;
+        }
+        out.write("Puzzle " + number + ": " + (result.steps.size() - 1) + " moves\n");
+        for (NumberPuzzle s : result.steps) {
+            out.write(s.toString());
+            out.write("\n");
+        }
+    }
+
+    // Open-addressing hash map from packed states to ints, so the search keeps one or two
+    // longs and one int per state instead of a HashSet entry plus a whole NumberPuzzle.
+    // Keys are one word, or two (low, high) for boards wider than 4.  A low word of 0 can
+    // never be a legal board (only one cell holds the blank), so it marks empty slots.
+    static final class LongIntMap {
+        static final int MISSING = -1;
+
+        private final int words;
+        private long[] keys;  // slot i at keys[i * words], high word (if any) right after
+        private int[] values;
+        private int size;
+        private int mask;
+
+        LongIntMap(boolean twoWords) {
+            this(twoWords, 1 << 10);
+        }
+
+        LongIntMap(boolean twoWords, int capacity) {
+            words = twoWords ? 2 : 1;
+            int n = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            keys = new long[n * words];
+            values = new int[n];
+            mask = n - 1;
+        }
+
+        // murmur3 finalizer; the packed nibbles are far from uniformly distributed
+        static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            key *= 0xc4ceb9fe1a85ec53L;
+            key ^= key >>> 33;
+            return key;
+        }
+
+        // same as mix(low) when high is 0
+        static long hash(long low, long high) {
+            return mix(low + 0x9e3779b97f4a7c15L * high);
+        }
+
+        int get(long key) {
+            return get(key, 0);
+        }
+
+        // returns MISSING if the key is absent; values stored must be non-negative
+        int get(long low, long high) {
+            int i = (int) hash(low, high) & mask;
+            while (keys[i * words] != 0) {
+                if (keys[i * words] == low && (words == 1 || keys[i * words + 1] == high)) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return MISSING;
+        }
+
+        boolean contains(long key) {
+            return get(key, 0) != MISSING;
+        }
+
+        void put(long key, int value) {
+            put(key, 0, value);
+        }
+
+        void put(long low, long high, int value) {
+            int i = (int) hash(low, high) & mask;
+            while (keys[i * words] != 0) {
+                if (keys[i * words] == low && (words == 1 || keys[i * words + 1] == high)) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i * words] = low;
+            if (words == 2) {
+                keys[i * words + 1] = high;
+            }
+            values[i] = value;
+            // keep the load factor at or below one half so probe runs stay short
+            if (++size * 2 > values.length) {
+                grow();
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            mask = values.length - 1;
+            for (int j = 0; j < oldValues.length; j++) {
+                long low = oldKeys[j * words];
+                if (low != 0) {
+                    long high = words == 2 ? oldKeys[j * words + 1] : 0;
+                    int i = (int) hash(low, high) & mask;
+                    while (keys[i * words] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i * words] = low;
+                    if (words == 2) {
+                        keys[i * words + 1] = high;
+                    }
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+    }
+
+    // What a search did: the solution if it found one, otherwise why not, plus counters
+    static final class SearchResult {
+        enum Status { SOLVED, UNSOLVABLE, BUDGET_EXCEEDED }
+
+        public Status status;
+        public final LinkedList<NumberPuzzle> steps = new LinkedList<NumberPuzzle>();
+        public final SearchStats stats = new SearchStats();
+        // the path costs at most this many times the optimum; above 1 only for searchAnytime()
+        public double suboptimality = 1;
+        public boolean fromCache;  // steps came from options.cache, without a search
+
+        SearchResult finish(Status status, SearchOptions options) {
+            this.status = status;
+            if (options.cache != null && status == Status.SOLVED && suboptimality == 1 && !fromCache) {
+                options.cache.add(steps);
+            }
+            if (options.listener != null) {
+                options.listener.finished(this);
+            }
+            return this;
+        }
+
+        public String toString() {
+            switch (status) {
+            case SOLVED:
+                if (fromCache) {
+                    return "solved in " + (steps.size() - 1) + " moves from the solution cache";
+                }
+                return "solved in " + (steps.size() - 1) + " moves after expanding " + stats.expanded + " nodes"
+                        + (suboptimality > 1 ? String.format(", at most %.2f times optimal", suboptimality) : "");
+            case UNSOLVABLE:
+                return "unsolvable: the goal cannot be reached from this board";
+            default:
+                return "search budget exceeded after expanding " + stats.expanded + " nodes ("
+                        + stats.generated + " generated, " + stats.storedStates + " states stored)";
+            }
+        }
+    }
+
+    // Where a search spent its effort.  The counters are plain fields bumped by the thread
+    // doing the search (HDA* sums its workers' counts once they stop), so keeping them
+    // costs an increment, not a synchronization.
+    static final class SearchStats {
+        public long expanded;        // nodes whose children were generated
+        public long generated;       // children generated
+        public long duplicates;      // children dropped as already expanded or queued as cheaply
+        public long closedHits;      // nodes polled from the frontier and skipped as already expanded
+        public long peakFrontier;    // most nodes queued at once; IDA*: deepest path
+        public long heuristicCalls;  // full estimates plus incremental afterMove() updates
+        public long storedStates;    // distinct states held when the search stopped
+        public long setupNanos;      // solvability check and initial estimate
+        public long searchNanos;     // the search loop itself
+        public long pathNanos;       // building the returned path
+        private long phaseStart;
+
+        void startClock() {
+            phaseStart = System.nanoTime();
+        }
+
+        // nanoseconds since the previous lap (or startClock()), for the phase just finished
+        long lap() {
+            long now = System.nanoTime();
+            long elapsed = now - phaseStart;
+            phaseStart = now;
+            return elapsed;
+        }
+
+        // fraction of generated children that were already known
+        public double duplicateRate() {
+            return generated == 0 ? 0 : (double) duplicates / generated;
+        }
+
+        public String toString() {
+            return String.format("%d expanded, %d generated, %d duplicates (%.1f%%), %d closed-set hits, "
+                    + "peak frontier %d, %d heuristic calls, %d states stored; "
+                    + "setup %.1f ms, search %.1f ms, path %.1f ms",
+                    expanded, generated, duplicates, 100 * duplicateRate(), closedHits,
+                    peakFrontier, heuristicCalls, storedStates,
+                    setupNanos / 1e6, searchNanos / 1e6, pathNanos / 1e6);
+        }
+    }
+
+    // Watches a search from the thread running it: progress() every options.reportEvery
+    // expansions, with counters that keep changing after it returns (so copy what you keep),
+    // and finished() once when the search stops.  HDA* reports progress from its worker
+    // threads, one call at a time, with only the expanded, generated and stored counts filled in.
+    interface SearchListener {
+        void progress(SearchStats stats);
+        void finished(SearchResult result);
+    }
+
+    // Optimal solutions found before, so repeated puzzles are answered without a search.
+    // Every suffix of an optimal path is optimal, so each state along a stored path is
+    // indexed with the moves left from it, and a board that hits any of them gets the rest
+    // of that path.  Boards are keyed by canonical form: mirroring a board in its main
+    // diagonal and renumbering the tiles to match maps the goal to itself, so a board and
+    // its mirror image are equally far from the goal and share the smaller encoding.
+    // The least recently used states are evicted past the capacity.
+    //
+    // open() also appends every new path to a file and replays the file at startup, so the
+    // cache outlives the process.  A record cut short by a crash is dropped on load.
+    static final class SolutionCache {
+        static final int MAGIC = 0x534f4c31;  // "SOL1"
+
+        private final LinkedHashMap<Key, Suffix> entries;
+        private DataOutputStream log;  // null when nothing is persisted
+
+        SolutionCache(final int capacity) {
+            entries = new LinkedHashMap<Key, Suffix>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<Key, Suffix> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        static SolutionCache open(String fileName, int capacity) throws IOException {
+            SolutionCache cache = new SolutionCache(capacity);
+            File file = new File(fileName);
+            long good = 0;  // length of the file up to the last complete record
+            if (file.length() > 0) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                try {
+                    if (in.readInt() != MAGIC) {
+                        throw new IOException(fileName + " is not a solution cache");
+                    }
+                    good = 4;
+                    int width;
+                    while ((width = in.read()) >= 0) {
+                        long packed = in.readLong();
+                        long packedHigh = in.readLong();
+                        byte[] moves = new byte[in.readUnsignedShort()];
+                        in.readFully(moves);
+                        if (width < 2 || width > MAX_WIDTH) {
+                            throw new IOException(fileName + " is corrupt");
+                        }
+                        cache.index(fromPacked(width, packed, packedHigh), moves);
+                        good += 1 + 8 + 8 + 2 + moves.length;
+                    }
+                } catch (EOFException e) {
+                    // the last record was cut short; it is dropped below
+                } finally {
+                    in.close();
+                }
+                if (file.length() > good) {
+                    RandomAccessFile truncate = new RandomAccessFile(file, "rw");
+                    try {
+                        truncate.setLength(good);
+                    } finally {
+                        truncate.close();
+                    }
+                }
+            }
+            cache.log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            if (good == 0) {
+                cache.log.writeInt(MAGIC);
+                cache.log.flush();
+            }
+            return cache;
+        }
+
+        // Adds the remaining optimal path from board to steps, starting with a copy of board
+        // that uses heuristic; false if board is not on any stored path
+        synchronized boolean lookup(NumberPuzzle board, Heuristic heuristic, LinkedList<NumberPuzzle> steps) {
+            NumberPuzzle mirror = mirror(board);
+            boolean mirrored = isSmaller(mirror, board);
+            Suffix suffix = entries.get(mirrored ? new Key(mirror) : new Key(board));
+            if (suffix == null) {
+                return false;
+            }
+            // the stored path runs through board itself, or through its mirror image
+            boolean flip = mirrored != suffix.mirrored;
+            NumberPuzzle step = board.copy();
+            step.costSoFar = 0;
+            step.parent = null;
+            step.useHeuristic(heuristic);
+            steps.add(step);
+            for (int i = suffix.from; i < suffix.moves.length; i++) {
+                int cell = flip ? mirrorCell(suffix.moves[i], board.width) : suffix.moves[i];
+                NumberPuzzle next = step.copy();
+                next.move(cell / board.width, cell % board.width);
+                next.costSoFar = step.costSoFar + 1;
+                next.parent = step;
+                steps.add(next);
+                step = next;
+            }
+            return true;
+        }
+
+        // Stores an optimal path, given as every board from the start to the goal
+        synchronized void add(List<NumberPuzzle> steps) {
+            NumberPuzzle start = steps.get(0);
+            byte[] moves = new byte[steps.size() - 1];
+            for (int i = 0; i < moves.length; i++) {
+                NumberPuzzle next = steps.get(i + 1);
+                moves[i] = (byte) (next.blank_r * next.width + next.blank_c);
+            }
+            index(start, moves);
+            if (log != null) {
+                try {
+                    log.writeByte(start.width);
+                    log.writeLong(start.tiles);
+                    log.writeLong(start.tilesHigh);
+                    log.writeShort(moves.length);
+                    log.write(moves);
+                    log.flush();
+                } catch (IOException e) {
+                    System.err.println("Could not write solution cache: " + e.getMessage());
+                    log = null;
+                }
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        // enters every state along the path, each with the moves left from it
+        private void index(NumberPuzzle start, byte[] moves) {
+            NumberPuzzle board = start.copy();
+            for (int i = 0; ; i++) {
+                NumberPuzzle mirror = mirror(board);
+                boolean mirrored = isSmaller(mirror, board);
+                entries.put(mirrored ? new Key(mirror) : new Key(board), new Suffix(moves, i, mirrored));
+                if (i == moves.length) {
+                    return;
+                }
+                board.move(moves[i] / board.width, moves[i] % board.width);
+            }
+        }
+
+        // The board mirrored in its main diagonal, with each tile renumbered to the tile
+        // whose goal cell mirrors its own
+        static NumberPuzzle mirror(NumberPuzzle board) {
+            int w = board.width;
+            NumberPuzzle mirror = new NumberPuzzle(w);
+            for (int cell = 0; cell < w * w; cell++) {
+                int tile = board.cell(cell);
+                mirror.setCell(mirrorCell(cell, w), tile == BLANK ? BLANK : mirrorCell(tile - 1, w) + 1);
+            }
+            mirror.blank_r = board.blank_c;
+            mirror.blank_c = board.blank_r;
+            return mirror;
+        }
+
+        static int mirrorCell(int cell, int width) {
+            return (cell % width) * width + cell / width;
+        }
+
+        private static boolean isSmaller(NumberPuzzle a, NumberPuzzle b) {
+            int c = Long.compareUnsigned(a.tilesHigh, b.tilesHigh);
+            return c != 0 ? c < 0 : Long.compareUnsigned(a.tiles, b.tiles) < 0;
+        }
+
+        static final class Key {
+            final int width;
+            final long packed;
+            final long packedHigh;
+
+            Key(NumberPuzzle board) {
+                width = board.width;
+                packed = board.tiles;
+                packedHigh = board.tilesHigh;
+            }
+
+            public int hashCode() {
+                return Long.hashCode(LongIntMap.hash(packed, packedHigh)) + width;
+            }
+
+            public boolean equals(Object o) {
+                if (!(o instanceof Key)) {
+                    return false;
+                }
+                Key other = (Key) o;
+                return width == other.width && packed == other.packed && packedHigh == other.packedHigh;
+            }
+        }
+
+        // moves[from..]: blank cells after each remaining move; mirrored when the key is
+        // the mirror image of the board the moves were recorded for
+        static final class Suffix {
+            final byte[] moves;
+            final int from;
+            final boolean mirrored;
+
+            Suffix(byte[] moves, int from, boolean mirrored) {
+                this.moves = moves;
+                this.from = from;
+                this.mirrored = mirrored;
+            }
+        }
+    }
+
+    // Search nodes for search() and ParallelAStar, stored column-wise: node i is state[i]
+    // (plus stateHigh[i] for boards wider than 4), the index of its parent, its cost so far,
+    // its cached heuristic and its blank cell.  A node costs about 20 bytes and no object
+    // header, and the arrays double when full, so adding a node allocates nothing.
+    static final class NodeArena {
+        static final int NONE = -1;  // parent of the root; also an empty frontier's poll()
+        static final int PLACEHOLDER = -2;  // a frontier entry with no node; see search()
+
+        long[] state;
+        long[] stateHigh;  // null up to 4x4
+        int[] parent;
+        short[] g;
+        short[] h;
+        byte[] blank;
+        int size;
+
+        NodeArena(boolean twoWords) {
+            int n = 1 << 10;
+            state = new long[n];
+            stateHigh = twoWords ? new long[n] : null;
+            parent = new int[n];
+            g = new short[n];
+            h = new short[n];
+            blank = new byte[n];
+        }
+
+        long stateHigh(int node) {
+            return stateHigh == null ? 0 : stateHigh[node];
+        }
+
+        // records the board as a child of parentNode and returns its index
+        int add(NumberPuzzle board, int parentNode) {
+            return add(board.tiles, board.tilesHigh, board.costSoFar, board.heuristicCost,
+                    board.blank_r * board.width + board.blank_c, parentNode);
+        }
+
+        int add(long tiles, long tilesHigh, int cost, int estimate, int blankCell, int parentNode) {
+            if (size == parent.length) {
+                int n = size * 2;
+                state = Arrays.copyOf(state, n);
+                if (stateHigh != null) {
+                    stateHigh = Arrays.copyOf(stateHigh, n);
+                }
+                parent = Arrays.copyOf(parent, n);
+                g = Arrays.copyOf(g, n);
+                h = Arrays.copyOf(h, n);
+                blank = Arrays.copyOf(blank, n);
+            }
+            state[size] = tiles;
+            if (stateHigh != null) {
+                stateHigh[size] = tilesHigh;
+            }
+            parent[size] = parentNode;
+            g[size] = (short) cost;
+            h[size] = (short) estimate;
+            blank[size] = (byte) blankCell;
+            return size++;
+        }
+
+        // makes board (of the same width) the node's board; its parent link is left alone
+        void load(int node, NumberPuzzle board) {
+            board.tiles = state[node];
+            board.tilesHigh = stateHigh(node);
+            board.blank_r = blank[node] / board.width;
+            board.blank_c = blank[node] % board.width;
+            board.costSoFar = g[node];
+            board.heuristicCost = h[node];
+        }
+    }
+
+    // The open list of search() and of each ParallelAStar worker, holding arena indices
+    // ordered by the f passed to add(); how ties are broken is up to the implementation
+    interface IntFrontier {
+        void add(int node, int f);
+        int poll();  // NodeArena.NONE when empty
+        int size();
+    }
+
+    // Binary heap on two int arrays.  The sifts are those of java.util.PriorityQueue, so
+    // equal-f nodes come out in the same order the original solve()'s queue gave them.
+    static final class IntHeap implements IntFrontier {
+        private int[] nodes = new int[1 << 10];
+        private int[] keys = new int[1 << 10];
+        private int size;
+
+        public void add(int node, int f) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int k = size++;
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                if (f >= keys[parent]) {
+                    break;
+                }
+                nodes[k] = nodes[parent];
+                keys[k] = keys[parent];
+                k = parent;
+            }
+            nodes[k] = node;
+            keys[k] = f;
+        }
+
+        public int poll() {
+            if (size == 0) {
+                return NodeArena.NONE;
+            }
+            int result = nodes[0];
+            int n = --size;
+            int node = nodes[n];
+            int f = keys[n];
+            int k = 0;
+            int half = n >>> 1;
+            while (k < half) {
+                int child = (k << 1) + 1;
+                int right = child + 1;
+                if (right < n && keys[child] > keys[right]) {
+                    child = right;
+                }
+                if (f <= keys[child]) {
+                    break;
+                }
+                nodes[k] = nodes[child];
+                keys[k] = keys[child];
+                k = child;
+            }
+            if (n > 0) {
+                nodes[k] = node;
+                keys[k] = f;
+            }
+            return result;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    // Array of stacks of arena indices, indexed by f.  Costs are small integers, so add and
+    // poll are O(1) amortized instead of O(log n) sifts.  Within a bucket the newest node
+    // comes out first, which favors deeper nodes among equal f and reaches the goal sooner.
+    static final class IntBucketQueue implements IntFrontier {
+        private int[][] buckets = new int[64][];
+        private int[] counts = new int[64];
+        private int minCost = Integer.MAX_VALUE;  // no non-empty bucket lies below this
+        private int size;
+
+        public void add(int node, int f) {
+            if (f >= buckets.length) {
+                int n = Math.max(buckets.length * 2, f + 1);
+                buckets = Arrays.copyOf(buckets, n);
+                counts = Arrays.copyOf(counts, n);
+            }
+            int[] bucket = buckets[f];
+            if (bucket == null) {
+                bucket = buckets[f] = new int[16];
+            } else if (counts[f] == bucket.length) {
+                bucket = buckets[f] = Arrays.copyOf(bucket, bucket.length * 2);
+            }
+            bucket[counts[f]++] = node;
+            if (f < minCost) {
+                minCost = f;
+            }
+            size++;
+        }
+
+        public int poll() {
+            if (size == 0) {
+                return NodeArena.NONE;
+            }
+            while (counts[minCost] == 0) {
+                minCost++;
+            }
+            size--;
+            return buckets[minCost][--counts[minCost]];
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    // Hash-distributed A* (HDA*).  Every state has one owning worker, picked by hashing the
+    // packed board, and only the owner keeps it in its open list and best-cost table, so
+    // duplicate detection needs no locking.  Children for other workers are buffered and
+    // handed over in batches through lock-free queues: when a batch fills, at the end of
+    // each round of expansions, and straight away for a child cheaper than the node its
+    // owner is expanding, so no worker goes on with worse nodes while a better one waits.
+    //
+    // A worker's open list is ordered, so once its best node is no cheaper than the best
+    // solution found so far (the incumbent), none of its nodes can improve on it and the
+    // worker goes idle.  'active' counts busy workers plus batches in flight: a worker counts
+    // itself busy before it counts down a batch it received, and counts down its own busy
+    // state only after sending everything it generated.  When 'active' reaches zero no work
+    // is left anywhere, and the incumbent is optimal for an admissible heuristic.
+    //
+    // As in search(), a worker keeps its nodes in a NodeArena and expands them by moving the
+    // tile on one scratch board, so it allocates nothing per node.  A child for another
+    // worker travels as a record of RECORD longs in a batch array, and a node's parent is
+    // named by a ref, its arena index times the number of workers plus its worker's id, so
+    // the path can be followed back across workers once they have all stopped.
+    static final class ParallelAStar {
+        static final int BATCH = 64;
+        // a record: tiles, tilesHigh, parent ref, then g << 32 | h << 8 | blank cell
+        static final int RECORD = 4;
+
+        private final SearchOptions options;
+        private final NumberPuzzle root;
+        private final Worker[] workers;
+        private final AtomicLong active = new AtomicLong();
+        private final AtomicInteger incumbentCost = new AtomicInteger(Integer.MAX_VALUE);
+        private volatile int incumbent = NodeArena.NONE;  // the goal's ref
+        private volatile Throwable failure;
+        // budget accounting, summed from every worker once per batch of expansions
+        private final AtomicLong expanded = new AtomicLong();
+        private final AtomicLong generated = new AtomicLong();
+        private final AtomicLong storedStates = new AtomicLong();
+        private volatile boolean overBudget;
+
+        ParallelAStar(SearchOptions options, int count, NumberPuzzle root) {
+            this.options = options;
+            this.root = root;
+            workers = new Worker[count];
+            for (int i = 0; i < count; i++) {
+                workers[i] = new Worker(i);
+            }
+        }
+
+        // result comes with its clock started and holds the setup done so far
+        SearchResult run(SearchResult result) {
+            SearchStats stats = result.stats;
+            stats.setupNanos = stats.lap();
+            active.set(1);
+            long[] start = new long[RECORD];
+            record(start, 0, root, NodeArena.NONE);
+            workers[owner(root.tiles, root.tilesHigh)].inbox.add(start);
+            Thread[] threads = new Thread[workers.length];
+            for (int i = 0; i < workers.length; i++) {
+                threads[i] = new Thread(workers[i], "hda-worker-" + i);
+                threads[i].start();
+            }
+            for (Thread t : threads) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted waiting for search workers", e);
+                }
+            }
+            if (failure != null) {
+                throw new IllegalStateException("search worker failed", failure);
+            }
+            stats.expanded = expanded.get();
+            stats.generated = generated.get();
+            stats.storedStates = storedStates.get();
+            // the root's estimate, then one afterMove() per generated child
+            stats.heuristicCalls = 1 + stats.generated;
+            // the threads have been joined, so their own counters are safe to read
+            for (Worker w : workers) {
+                stats.duplicates += w.duplicates;
+                stats.closedHits += w.closedHits;
+                stats.peakFrontier += w.peakFrontier;
+            }
+            stats.searchNanos = stats.lap();
+            if (overBudget) {
+                return result.finish(SearchResult.Status.BUDGET_EXCEEDED, options);
+            }
+            // the threads have stopped, so every arena is safe to read
+            for (int ref = incumbent; ref != NodeArena.NONE; ) {
+                NodeArena arena = workers[ref % workers.length].arena;
+                int node = ref / workers.length;
+                NumberPuzzle step = new NumberPuzzle(root.width);
+                arena.load(node, step);
+                step.heuristic = root.heuristic;
+                if (!result.steps.isEmpty()) {
+                    result.steps.getFirst().parent = step;
+                }
+                result.steps.push(step);
+                ref = arena.parent[node];
+            }
+            stats.pathNanos = stats.lap();
+            return result.finish(SearchResult.Status.SOLVED, options);
+        }
+
+        int owner(long tiles, long tilesHigh) {
+            // high bits, since each worker's LongIntMap indexes by the low bits of the same hash
+            return (int) ((LongIntMap.hash(tiles, tilesHigh) >>> 32) % workers.length);
+        }
+
+        // writes board, a child of the node with ref parent, as the record at 'at'
+        static void record(long[] records, int at, NumberPuzzle board, int parent) {
+            records[at] = board.tiles;
+            records[at + 1] = board.tilesHigh;
+            records[at + 2] = parent;
+            records[at + 3] = (long) board.costSoFar << 32 | board.heuristicCost << 8
+                    | (board.blank_r * board.width + board.blank_c);
+        }
+
+        private synchronized void reportProgress(long expanded, long generated, long states) {
+            SearchStats stats = new SearchStats();
+            stats.expanded = expanded;
+            stats.generated = generated;
+            stats.storedStates = states;
+            options.listener.progress(stats);
+        }
+
+        private synchronized void offerSolution(int goal, int cost) {
+            if (cost < incumbentCost.get()) {
+                incumbent = goal;
+                incumbentCost.set(cost);
+            }
+        }
+
+        final class Worker implements Runnable {
+            final int id;
+            final ConcurrentLinkedQueue<long[]> inbox = new ConcurrentLinkedQueue<long[]>();
+            final NodeArena arena = new NodeArena(root.width > 4);
+            private IntFrontier open;
+            private final LongIntMap bestCost = new LongIntMap(true);
+            private final NumberPuzzle board = root.copy();  // scratch board, as in search()
+            private final long[][] outgoing;
+            private final int[] outgoingCount;  // records, not longs
+            private boolean busy;
+            // f of the node this worker last expanded; MAX_VALUE while it has nothing to do
+            volatile int bound = Integer.MAX_VALUE;
+            private long reportedStates;
+            // this worker's share of the stats; peakFrontier is its own open list's peak,
+            // so the sum over workers bounds the total from above
+            long duplicates;
+            long closedHits;
+            long peakFrontier;
+
+            Worker(int id) {
+                this.id = id;
+                open = options.newIntFrontier();
+                outgoing = new long[workers.length][BATCH * RECORD];
+                outgoingCount = new int[workers.length];
+            }
+
+            public void run() {
+                try {
+                    while (!overBudget) {
+                        receive();
+                        if (busy) {
+                            boolean more = expandSome();
+                            flush();
+                            if (!more && inbox.isEmpty()) {
+                                busy = false;
+                                active.decrementAndGet();
+                            }
+                        } else if (active.get() == 0 || failure != null || overBudget) {
+                            return;
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+
+            private void receive() {
+                long[] batch;
+                while ((batch = inbox.poll()) != null) {
+                    if (!busy) {
+                        busy = true;
+                        active.incrementAndGet();
+                    }
+                    for (int at = 0; at < batch.length; at += RECORD) {
+                        long costs = batch[at + 3];
+                        add(batch[at], batch[at + 1], (int) batch[at + 2], (int) (costs >>> 32),
+                                (int) (costs >>> 8) & 0xFFFFFF, (int) costs & 0xFF);
+                    }
+                    active.decrementAndGet();
+                }
+            }
+
+            private void add(long tiles, long tilesHigh, int parent, int g, int h, int blank) {
+                if (g + h >= incumbentCost.get()) {
+                    return;
+                }
+                int seen = bestCost.get(tiles, tilesHigh);
+                if (seen == LongIntMap.MISSING || g < seen) {
+                    bestCost.put(tiles, tilesHigh, g);
+                    open.add(arena.add(tiles, tilesHigh, g, h, blank, parent), g + h);
+                    if (open.size() > peakFrontier) {
+                        peakFrontier = open.size();
+                    }
+                } else {
+                    duplicates++;
+                }
+            }
+
+            // Expands up to a batch of nodes; false once nothing left can beat the incumbent
+            private boolean expandSome() {
+                long batchExpanded = 0;
+                long batchGenerated = 0;
+                boolean more = true;
+                for (int n = 0; n < BATCH; n++) {
+                    int current = open.poll();
+                    int f = current == NodeArena.NONE ? 0 : arena.g[current] + arena.h[current];
+                    if (current == NodeArena.NONE || f >= incumbentCost.get()) {
+                        // every other queued node costs at least as much
+                        open = options.newIntFrontier();
+                        more = false;
+                        bound = Integer.MAX_VALUE;
+                        break;
+                    }
+                    if (f != bound) {
+                        bound = f;
+                    }
+                    int g = arena.g[current];
+                    if (g > bestCost.get(arena.state[current], arena.stateHigh(current))) {
+                        closedHits++;
+                        continue;  // reached more cheaply since it was queued
+                    }
+                    int ref = current * workers.length + id;
+                    arena.load(current, board);
+                    if (board.heuristicCost == 0 && board.solved()) {
+                        offerSolution(ref, g);
+                        continue;
+                    }
+                    batchExpanded++;
+                    // same order as legalMoves(): blank goes up, left, down, right
+                    int r = board.blank_r;
+                    int c = board.blank_c;
+                    for (int dir = 0; dir < 4; dir++) {
+                        int nr = r + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+                        int nc = c + (dir == 1 ? -1 : dir == 3 ? 1 : 0);
+                        if (nr < 0 || nr >= board.width || nc < 0 || nc >= board.width) {
+                            continue;
+                        }
+                        board.move(nr, nc);
+                        board.costSoFar = g + 1;
+                        batchGenerated++;
+                        int to = owner(board.tiles, board.tilesHigh);
+                        if (to == id) {
+                            add(board.tiles, board.tilesHigh, ref, g + 1, board.heuristicCost,
+                                    nr * board.width + nc);
+                        } else {
+                            record(outgoing[to], outgoingCount[to]++ * RECORD, board, ref);
+                            if (outgoingCount[to] == BATCH || board.totalCost() < workers[to].bound) {
+                                send(to);
+                            }
+                        }
+                        arena.load(current, board);
+                    }
+                }
+                long total = expanded.addAndGet(batchExpanded);
+                long totalGenerated = generated.addAndGet(batchGenerated);
+                long states = storedStates.addAndGet(bestCost.size() - reportedStates);
+                reportedStates = bestCost.size();
+                if (options.overBudget(total, states)) {
+                    overBudget = true;
+                }
+                if (options.listener != null
+                        && total / options.reportEvery != (total - batchExpanded) / options.reportEvery) {
+                    reportProgress(total, totalGenerated, states);
+                }
+                return more;
+            }
+
+            private void flush() {
+                for (int to = 0; to < workers.length; to++) {
+                    if (outgoingCount[to] > 0) {
+                        send(to);
+                    }
+                }
+            }
+
+            private void send(int to) {
+                long[] batch = Arrays.copyOf(outgoing[to], outgoingCount[to] * RECORD);
+                outgoingCount[to] = 0;
+                active.incrementAndGet();
+                workers[to].inbox.add(batch);
+            }
+        }
+    }
+
+    // Estimate of the moves left to the goal.  Implementations must be admissible for
+    // solve() to return shortest paths, and are shared between searches, so they must
+    // not keep per-board state.
+    interface Heuristic {
+        int estimate(NumberPuzzle p);
+
+        // The estimate once tile slides from cell 'from' into the blank at cell 'to'.
+        // p is still the board before the move and h its current estimate.
+        int afterMove(NumberPuzzle p, int h, int tile, int from, int to);
+
+        // What a board of this width should call; useHeuristic() resolves it once, so one
+        // that looks up a table per width does not do so on every move
+        default Heuristic resolve(int width) {
+            return this;
+        }
+    }
+
+    static final Heuristic TILES_OUT_OF_PLACE = new Heuristic() {
+        public int estimate(NumberPuzzle p) {
+            return p.tilesOutOfPlace();
+        }
+
+        public int afterMove(NumberPuzzle p, int h, int tile, int from, int to) {
+            return h + (tile - 1 == from ? 1 : 0) - (tile - 1 == to ? 1 : 0);
+        }
+    };
+
+    static final Heuristic MANHATTAN_DISTANCE = new Heuristic() {
+        public int estimate(NumberPuzzle p) {
+            return p.manhattanDistance();
+        }
+
+        public int afterMove(NumberPuzzle p, int h, int tile, int from, int to) {
+            int[] distance = DISTANCE[p.width][tile];
+            return h + distance[to] - distance[from];
+        }
+    };
+
+    static final Heuristic LINEAR_CONFLICT = new LinearConflict();
+
+    // name as given on the command line, or null
+    static Heuristic heuristicNamed(String name) {
+        if (name.equals("misplaced")) {
+            return TILES_OUT_OF_PLACE;
+        } else if (name.equals("manhattan")) {
+            return MANHATTAN_DISTANCE;
+        } else if (name.equals("linear")) {
+            return LINEAR_CONFLICT;
+        } else if (name.equals("walking")) {
+            return WALKING_DISTANCE;
+        }
+        return null;
+    }
+
+    // Manhattan distance plus linear conflicts: two tiles that are both in their goal row
+    // (or column) but in the wrong order there, one of them must leave the line and come
+    // back, which Manhattan distance does not count.  Per line, every tile outside the
+    // longest correctly ordered subsequence costs two extra moves.
+    static final class LinearConflict implements Heuristic {
+        // CONFLICTS[width][code]: tiles to pull out of a line, where base-(width + 1) digit
+        // i of code is 0 if cell i of the line holds no tile belonging to the line, or else
+        // 1 + that tile's goal index within the line
+        private static final int[][] CONFLICTS = new int[MAX_WIDTH + 1][];
+        private static final int[][] DIGIT = new int[MAX_WIDTH + 1][];
+        static {
+            for (int w = 2; w <= MAX_WIDTH; w++) {
+                CONFLICTS[w] = new int[power(w + 1, w)];
+                DIGIT[w] = new int[w];
+                for (int i = 0; i < w; i++) {
+                    DIGIT[w][i] = power(w + 1, i);
+                }
+                int[] goals = new int[w];
+                int[] longest = new int[w];
+                for (int code = 0; code < CONFLICTS[w].length; code++) {
+                    int n = 0;
+                    for (int i = 0, rest = code; i < w; i++, rest /= w + 1) {
+                        if (rest % (w + 1) != 0) {
+                            goals[n++] = rest % (w + 1);
+                        }
+                    }
+                    int best = 0;
+                    for (int i = 0; i < n; i++) {
+                        longest[i] = 1;
+                        for (int j = 0; j < i; j++) {
+                            if (goals[j] < goals[i]) {
+                                longest[i] = Math.max(longest[i], longest[j] + 1);
+                            }
+                        }
+                        best = Math.max(best, longest[i]);
+                    }
+                    CONFLICTS[w][code] = n - best;
+                }
+            }
+        }
+
+        public int estimate(NumberPuzzle p) {
+            int[] conflictTable = CONFLICTS[p.width];
+            int conflicts = 0;
+            for (int line = 0; line < p.width; line++) {
+                conflicts += conflictTable[lineCode(p, true, line, -1, -1)]
+                        + conflictTable[lineCode(p, false, line, -1, -1)];
+            }
+            return p.manhattanDistance() + 2 * conflicts;
+        }
+
+        public int afterMove(NumberPuzzle p, int h, int tile, int from, int to) {
+            int w = p.width;
+            int[] conflictTable = CONFLICTS[w];
+            // a vertical move keeps every column's order and changes two rows, and vice versa
+            boolean rows = from / w != to / w;
+            int a = rows ? from / w : from % w;
+            int b = rows ? to / w : to % w;
+            int change = conflictTable[lineCode(p, rows, a, from, to)]
+                    + conflictTable[lineCode(p, rows, b, from, to)]
+                    - conflictTable[lineCode(p, rows, a, -1, -1)]
+                    - conflictTable[lineCode(p, rows, b, -1, -1)];
+            return h + DISTANCE[w][tile][to] - DISTANCE[w][tile][from] + 2 * change;
+        }
+
+        // Reads the line as if the tile in cell 'from' had slid into the blank at 'to';
+        // pass -1 for both to read the board as it is
+        private static int lineCode(NumberPuzzle p, boolean rows, int line, int from, int to) {
+            int w = p.width;
+            int[] digit = DIGIT[w];
+            int code = 0;
+            for (int i = 0; i < w; i++) {
+                int cell = rows ? line * w + i : i * w + line;
+                int tile = cell == from ? BLANK : cell == to ? p.cell(from) : p.cell(cell);
+                if (tile == BLANK) {
+                    continue;
+                }
+                int goalLine = rows ? (tile - 1) / w : (tile - 1) % w;
+                if (goalLine == line) {
+                    int goalIndex = rows ? (tile - 1) % w : (tile - 1) / w;
+                    code += (goalIndex + 1) * digit[i];
+                }
+            }
+            return code;
+        }
+    }
+
+    static final Heuristic WALKING_DISTANCE = new Heuristic() {
+        public int estimate(NumberPuzzle p) {
+            return WalkingDistance.forWidth(p.width).estimate(p);
+        }
+
+        public int afterMove(NumberPuzzle p, int h, int tile, int from, int to) {
+            return WalkingDistance.forWidth(p.width).afterMove(p, h, tile, from, to);
+        }
+
+        // boards use the table itself, so moves don't take forWidth()'s lock
+        public Heuristic resolve(int width) {
+            return WalkingDistance.forWidth(width);
+        }
+    };
+
+    // Walking distance: how many moves it takes just to get every tile into its goal row,
+    // when tiles may only be told apart by goal row, plus the same for columns.  A state of
+    // that relaxed puzzle is the blank's row and, per row, how many of its tiles belong in
+    // each goal row.  There are few enough (24,964 for 4x4) to table them all by a search
+    // from the goal; columns reuse the table because the goal is symmetric.  Tables are
+    // built once per width, on first use, up to 4x4.
+    static final class WalkingDistance implements Heuristic {
+        private static final WalkingDistance[] BY_WIDTH = new WalkingDistance[MAX_WIDTH + 1];
+
+        private final int width;
+        // states keyed as in key(); value is the relaxed distance to the goal
+        private final LongIntMap table = new LongIntMap(false);
+        private final long[] digit;
+
+        static synchronized WalkingDistance forWidth(int width) {
+            // the 5x5 table runs to millions of states; use linear conflict there
+            if (width > PUZZLE_WIDTH) {
+                throw new IllegalArgumentException("walking distance is limited to 4x4 boards");
+            }
+            if (BY_WIDTH[width] == null) {
+                BY_WIDTH[width] = new WalkingDistance(width);
+            }
+            return BY_WIDTH[width];
+        }
+
+        private WalkingDistance(int width) {
+            final int w = width;
+            this.width = width;
+            digit = new long[w * (w - 1)];
+            for (int i = 0; i < digit.length; i++) {
+                digit[i] = i == 0 ? 1 : digit[i - 1] * (w + 1);
+            }
+            int[][] goal = new int[w][w];
+            for (int r = 0; r < w; r++) {
+                goal[r][r] = r == w - 1 ? w - 1 : w;
+            }
+            ArrayDeque<int[][]> queue = new ArrayDeque<int[][]>();
+            ArrayDeque<Integer> blanks = new ArrayDeque<Integer>();
+            table.put(key(goal, w - 1), 0);
+            queue.add(goal);
+            blanks.add(w - 1);
+            while (!queue.isEmpty()) {
+                int[][] counts = queue.poll();
+                int blank = blanks.poll();
+                int dist = table.get(key(counts, blank));
+                // a tile from the row above or below slides into the blank's row
+                for (int from = blank - 1; from <= blank + 1; from += 2) {
+                    if (from < 0 || from >= w) {
+                        continue;
+                    }
+                    for (int g = 0; g < w; g++) {
+                        if (counts[from][g] == 0) {
+                            continue;
+                        }
+                        int[][] next = new int[w][];
+                        for (int r = 0; r < w; r++) {
+                            next[r] = counts[r].clone();
+                        }
+                        next[from][g]--;
+                        next[blank][g]++;
+                        long k = key(next, from);
+                        if (!table.contains(k)) {
+                            table.put(k, dist + 1);
+                            queue.add(next);
+                            blanks.add(from);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Base-(width + 1) digits of counts[r][g] for g < width - 1 (the last column follows
+        // from the row's total), times width, plus the blank row; offset by one so 0 stays free
+        private long key(int[][] counts, int blank) {
+            long key = 0;
+            for (int r = 0; r < width; r++) {
+                for (int g = 0; g < width - 1; g++) {
+                    key += counts[r][g] * digit[r * (width - 1) + g];
+                }
+            }
+            return key * width + blank + 1;
+        }
+
+        // the same key read straight off a board, by rows or by columns
+        private long key(NumberPuzzle p, boolean rows) {
+            long key = 0;
+            int blank = 0;
+            for (int cell = 0; cell < width * width; cell++) {
+                int tile = p.cell(cell);
+                int line = rows ? cell / width : cell % width;
+                if (tile == BLANK) {
+                    blank = line;
+                    continue;
+                }
+                int g = rows ? (tile - 1) / width : (tile - 1) % width;
+                if (g < width - 1) {
+                    key += digit[line * (width - 1) + g];
+                }
+            }
+            return key * width + blank + 1;
+        }
+
+        public int estimate(NumberPuzzle p) {
+            return table.get(key(p, true)) + table.get(key(p, false));
+        }
+
+        public int afterMove(NumberPuzzle p, int h, int tile, int from, int to) {
+            // only the dimension the tile moved along changes: one count moves from the
+            // tile's old line to its new one, and the blank takes the opposite step
+            boolean rows = from / width != to / width;
+            int a = rows ? from / width : from % width;
+            int b = rows ? to / width : to % width;
+            int g = rows ? (tile - 1) / width : (tile - 1) % width;
+            long before = key(p, rows);
+            long after = before + a - b;
+            if (g < width - 1) {
+                after += (digit[b * (width - 1) + g] - digit[a * (width - 1) + g]) * width;
+            }
+            return h + table.get(after) - table.get(before);
+        }
+    }
+
+    static int power(int base, int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    // Disjoint additive pattern database.  The tiles are split into groups, and for every
+    // placement of a group's tiles the table holds how many moves of those tiles alone it
+    // takes to bring them home, other tiles being indistinguishable.  Each move shifts one
+    // tile, so the per-group values add up to an admissible (and consistent) heuristic.
+    //
+    // Tables are filled by a breadth-first search backwards from the goal and stored one
+    // byte per placement, indexed by the placement's rank among all ordered choices of
+    // cells (16 * 15 * ... for 6 tiles = 5,765,760 bytes).  load() memory-maps the file so
+    // startup does no work and solver processes on one machine share the page cache.
+    static final class PatternDatabase implements Heuristic {
+        static final int[][] PARTITION_663 = {
+            {1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}
+        };
+        static final int MAGIC = 0x50444231;  // "PDB1"
+        static final int CELLS = PUZZLE_WIDTH * PUZZLE_WIDTH;
+
+        private final int[][] patterns;
+        private final int[] patternOf = new int[CELLS];  // tile -> group, -1 for the blank
+        private final ByteBuffer tables;
+        private final int[] offsets;
+
+        private PatternDatabase(int[][] patterns, ByteBuffer tables, int[] offsets) {
+            this.patterns = patterns;
+            this.tables = tables;
+            this.offsets = offsets;
+            Arrays.fill(patternOf, -1);
+            for (int p = 0; p < patterns.length; p++) {
+                for (int tile : patterns[p]) {
+                    patternOf[tile] = p;
+                }
+            }
+        }
+
+        static PatternDatabase load(String fileName) throws IOException {
+            FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+            try {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt() != MAGIC || buffer.getInt() != PUZZLE_WIDTH) {
+                    throw new IOException(fileName + " is not a " + PUZZLE_WIDTH + "x"
+                            + PUZZLE_WIDTH + " pattern database");
+                }
+                int[][] patterns = new int[buffer.getInt()][];
+                for (int p = 0; p < patterns.length; p++) {
+                    patterns[p] = new int[buffer.getInt()];
+                    for (int i = 0; i < patterns[p].length; i++) {
+                        patterns[p][i] = buffer.getInt();
+                    }
+                }
+                int[] offsets = new int[patterns.length];
+                int offset = buffer.position();
+                for (int p = 0; p < patterns.length; p++) {
+                    offsets[p] = offset;
+                    offset += placements(patterns[p].length);
+                }
+                if (offset != buffer.capacity()) {
+                    throw new IOException(fileName + " is truncated");
+                }
+                return new PatternDatabase(patterns, buffer, offsets);
+            } finally {
+                // the mapping stays valid after the channel is closed
+                channel.close();
+            }
+        }
+
+        static void build(int[][] patterns, String fileName) throws IOException {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(fileName)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(PUZZLE_WIDTH);
+                out.writeInt(patterns.length);
+                for (int[] pattern : patterns) {
+                    out.writeInt(pattern.length);
+                    for (int tile : pattern) {
+                        out.writeInt(tile);
+                    }
+                }
+                for (int[] pattern : patterns) {
+                    out.write(buildTable(pattern));
+                }
+            } finally {
+                out.close();
+            }
+        }
+
+        public int estimate(NumberPuzzle p) {
+            // the partition and the table ranks are laid out for the 15-puzzle only
+            if (p.width != PUZZLE_WIDTH) {
+                throw new IllegalArgumentException("pattern database needs a 4x4 board");
+            }
+            return estimate(p.tiles);
+        }
+
+        public int afterMove(NumberPuzzle p, int h, int tile, int from, int to) {
+            return h + moveDelta(p.tiles, tile, to);
+        }
+
+        // sum of the group values for a packed board
+        int estimate(long tiles) {
+            long where = cellsOf(tiles);
+            int total = 0;
+            for (int p = 0; p < patterns.length; p++) {
+                total += value(p, where);
+            }
+            return total;
+        }
+
+        // change in estimate() when tile moves from its cell in tiles to cell 'to'
+        int moveDelta(long tiles, int tile, int to) {
+            int p = patternOf[tile];
+            long before = cellsOf(tiles);
+            long after = (before & ~(0xFL << (4 * tile))) | ((long) to << (4 * tile));
+            return value(p, after) - value(p, before);
+        }
+
+        private int value(int p, long where) {
+            return tables.get(offsets[p] + rank(patterns[p], where)) & 0xFF;
+        }
+
+        // inverse of a packed board: nibble t holds the cell of tile t
+        static long cellsOf(long tiles) {
+            long where = 0;
+            for (int cell = 0; cell < CELLS; cell++) {
+                where |= (long) cell << (4 * ((tiles >>> (4 * cell)) & 0xF));
+            }
+            return where;
+        }
+
+        // number of ordered placements of k tiles on distinct cells
+        static int placements(int k) {
+            int n = 1;
+            for (int i = 0; i < k; i++) {
+                n *= CELLS - i;
+            }
+            return n;
+        }
+
+        // mixed-radix rank of the pattern tiles' cells, each digit counting only free cells
+        private static int rank(int[] pattern, long where) {
+            int used = 0;
+            int rank = 0;
+            for (int i = 0; i < pattern.length; i++) {
+                int cell = (int) (where >>> (4 * pattern[i])) & 0xF;
+                rank = rank * (CELLS - i) + cell - Integer.bitCount(used & ((1 << cell) - 1));
+                used |= 1 << cell;
+            }
+            return rank;
+        }
+
+        // same ranking for a search state: nibble i holds the cell of the i-th tracked item
+        private static int rankState(int state, int items) {
+            int used = 0;
+            int rank = 0;
+            for (int i = 0; i < items; i++) {
+                int cell = (state >>> (4 * i)) & 0xF;
+                rank = rank * (CELLS - i) + cell - Integer.bitCount(used & ((1 << cell) - 1));
+                used |= 1 << cell;
+            }
+            return rank;
+        }
+
+        // Breadth-first search from the goal over (pattern tile cells, blank cell).  Sliding
+        // a pattern tile costs 1 and sliding any other tile costs 0, so the search runs level
+        // by level and free moves are appended to the level being expanded.  The blank is
+        // ranked last, so the table entry for a placement is the minimum over a block of
+        // CELLS - k consecutive search states.
+        static byte[] buildTable(int[] pattern) {
+            int k = pattern.length;
+            int blankShift = 4 * k;
+            byte[] dist = new byte[placements(k + 1)];
+            Arrays.fill(dist, (byte) 0xFF);
+
+            int start = (CELLS - 1) << blankShift;
+            for (int i = 0; i < k; i++) {
+                start |= (pattern[i] - 1) << (4 * i);
+            }
+            dist[rankState(start, k + 1)] = 0;
+            IntQueue current = new IntQueue();
+            IntQueue next = new IntQueue();
+            current.add(start);
+
+            for (int level = 0; !current.isEmpty(); level++) {
+                while (!current.isEmpty()) {
+                    int state = current.poll();
+                    if ((dist[rankState(state, k + 1)] & 0xFF) != level) {
+                        continue;  // reached for free after being queued a level deeper
+                    }
+                    int blank = (state >>> blankShift) & 0xF;
+                    int br = blank / PUZZLE_WIDTH;
+                    int bc = blank % PUZZLE_WIDTH;
+                    for (int dir = 0; dir < 4; dir++) {
+                        int nr = br + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+                        int nc = bc + (dir == 1 ? -1 : dir == 3 ? 1 : 0);
+                        if (nr < 0 || nr >= PUZZLE_WIDTH || nc < 0 || nc >= PUZZLE_WIDTH) {
+                            continue;
+                        }
+                        int cell = nr * PUZZLE_WIDTH + nc;
+                        int moved = (state & ~(0xF << blankShift)) | (cell << blankShift);
+                        int cost = level;
+                        for (int i = 0; i < k; i++) {
+                            if (((state >>> (4 * i)) & 0xF) == cell) {
+                                moved = (moved & ~(0xF << (4 * i))) | (blank << (4 * i));
+                                cost = level + 1;
+                                break;
+                            }
+                        }
+                        int r = rankState(moved, k + 1);
+                        if ((dist[r] & 0xFF) > cost) {
+                            dist[r] = (byte) cost;
+                            (cost == level ? current : next).add(moved);
+                        }
+                    }
+                }
+                IntQueue swap = current;
+                current = next;
+                next = swap;
+            }
+
+            byte[] table = new byte[placements(k)];
+            int blanks = CELLS - k;
+            for (int r = 0; r < table.length; r++) {
+                int min = 0xFF;
+                for (int b = 0; b < blanks; b++) {
+                    min = Math.min(min, dist[r * blanks + b] & 0xFF);
+                }
+                table[r] = (byte) min;
+            }
+            return table;
+        }
+    }
+
+    // Growable FIFO of ints for the pattern database search
+    static final class IntQueue {
+        private int[] items = new int[1 << 10];
+        private int head, tail;
+
+        void add(int value) {
+            if (tail == items.length) {
+                if (head > items.length / 2) {
+                    System.arraycopy(items, head, items, 0, tail - head);
+                } else {
+                    items = Arrays.copyOf(items, items.length * 2);
+                    System.arraycopy(items, head, items, 0, tail - head);
+                }
+                tail -= head;
+                head = 0;
+            }
+            items[tail++] = value;
+        }
+
+        int poll() {
+            int value = items[head++];
+            if (head == tail) {
+                head = tail = 0;
+            }
+            return value;
+        }
+
+        boolean isEmpty() {
+            return head == tail;
+        }
+    }
+
 }
@@ -0,0 +1,300 @@
+// JMH benchmarks for the NumberPuzzle search hot path: move generation, heuristic
+// evaluation, and whole searches on hw1/sample_input and on seeded random walks.
+//
+// There is no build file, so compile against the JMH jars by hand.  These are the four
+// from Maven Central, each at https://repo1.maven.org/maven2/GROUP/ARTIFACT/VERSION/
+// (GROUP with its dots as slashes): org.openjdk.jmh jmh-core and jmh-generator-annprocess
+// 1.37, and jmh-core's runtime dependencies net.sf.jopt-simple jopt-simple 5.0.4 and
+// org.apache.commons commons-math3 3.6.1.  With them in the repo root, from there (the
+// annotation processor in jmh-generator-annprocess writes the generated harness):
+//
+//   javac -d out hw1/NumberPuzzle.java
+//   javac -cp out:jmh-core-1.37.jar:jmh-generator-annprocess-1.37.jar -d out hw1/bench/NumberPuzzleBench.java
+//   java -cp out:jmh-core-1.37.jar:jopt-simple-5.0.4.jar:commons-math3-3.6.1.jar bench.NumberPuzzleBench
+//
+// main() turns on the GC profiler, so every result comes with gc.alloc.rate and
+// gc.alloc.rate.norm (bytes per operation).  The search benchmarks also report an
+// "expansions" rate, i.e. nodes expanded per second, next to searches per second.
+// Extra JMH options go after the class name, e.g. "bench.NumberPuzzleBench search -p board=walk40".
+//
+// JMH will not run benchmarks from the default package, and a named package cannot see
+// NumberPuzzle, so the solver is reached through method handles resolved once up front.
+
+package bench;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NumberPuzzleBench {
+    static final String GOAL = "1 2 3 4\n5 6 7 8\n9 10 11 12\n13 14 15 -\n";
+    // seed for the random walks, so every run benchmarks the same boards
+    static final long SEED = 20240917L;
+
+    // NumberPuzzle's own methods, with NumberPuzzle and its nested types erased to Object
+    static final MethodHandle READ_PUZZLE;      // (BufferedReader) -> board
+    static final MethodHandle FROM_PACKED;      // (long) -> board
+    static final MethodHandle PACKED;           // (board) -> long
+    static final MethodHandle LEGAL_MOVES;      // (board) -> List of boards
+    static final MethodHandle HEURISTIC;        // (board) -> int, computed from scratch
+    static final MethodHandle USE_HEURISTIC;    // (board, heuristic) -> void
+    static final MethodHandle HEURISTIC_NAMED;  // (String) -> heuristic
+    static final MethodHandle NEW_OPTIONS;      // () -> SearchOptions
+    static final MethodHandle SET_HEURISTIC;    // (options, heuristic) -> void
+    static final MethodHandle SEARCH;           // (board, options) -> SearchResult
+    static final MethodHandle SEARCH_IDA;       // (board, options) -> SearchResult
+    static final MethodHandle STATUS;           // (result) -> Status
+    static final MethodHandle STATS;            // (result) -> SearchStats
+    static final MethodHandle EXPANDED;         // (stats) -> long
+    static {
+        try {
+            Class<?> puzzle = Class.forName("NumberPuzzle");
+            Class<?> options = Class.forName("NumberPuzzle$SearchOptions");
+            Class<?> result = Class.forName("NumberPuzzle$SearchResult");
+            Class<?> stats = Class.forName("NumberPuzzle$SearchStats");
+            Class<?> heuristic = Class.forName("NumberPuzzle$Heuristic");
+            READ_PUZZLE = method(puzzle, "readPuzzle", BufferedReader.class);
+            FROM_PACKED = method(puzzle, "fromPacked", long.class);
+            PACKED = method(puzzle, "packed");
+            LEGAL_MOVES = method(puzzle, "legalMoves");
+            HEURISTIC = method(puzzle, "heuristic");
+            USE_HEURISTIC = method(puzzle, "useHeuristic", heuristic);
+            HEURISTIC_NAMED = method(puzzle, "heuristicNamed", String.class);
+            NEW_OPTIONS = erase(MethodHandles.lookup().unreflectConstructor(
+                    accessible(options.getDeclaredConstructor())));
+            SET_HEURISTIC = erase(MethodHandles.lookup().unreflectSetter(
+                    accessible(options.getDeclaredField("heuristic"))));
+            SEARCH = method(puzzle, "search", options);
+            SEARCH_IDA = method(puzzle, "searchIDAStar", options);
+            STATUS = erase(MethodHandles.lookup().unreflectGetter(
+                    accessible(result.getDeclaredField("status"))));
+            STATS = erase(MethodHandles.lookup().unreflectGetter(
+                    accessible(result.getDeclaredField("stats"))));
+            EXPANDED = erase(MethodHandles.lookup().unreflectGetter(
+                    accessible(stats.getDeclaredField("expanded"))));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static MethodHandle method(Class<?> owner, String name, Class<?>... parameters)
+            throws ReflectiveOperationException {
+        Method m = owner.getDeclaredMethod(name, parameters);
+        return erase(MethodHandles.lookup().unreflect(accessible(m)));
+    }
+
+    static <T extends AccessibleObject> T accessible(T member) {
+        member.setAccessible(true);
+        return member;
+    }
+
+    // reference types other than String and BufferedReader become Object
+    static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            type = type.changeParameterType(i, erased(type.parameterType(i)));
+        }
+        return handle.asType(type.changeReturnType(erased(type.returnType())));
+    }
+
+    static Class<?> erased(Class<?> c) {
+        if (c.isPrimitive() || c == String.class || c == BufferedReader.class) {
+            return c;
+        }
+        return Object.class;
+    }
+
+    static Object readPuzzle(BufferedReader in) {
+        try {
+            Object board = (Object) READ_PUZZLE.invokeExact(in);
+            if (board == null) {
+                throw new IllegalStateException("no puzzle in input");
+            }
+            return board;
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // packed board a depth-move random walk away from the goal, never stepping straight back
+    static long randomWalk(int depth, Random random) {
+        try {
+            Object board = readPuzzle(new BufferedReader(new StringReader(GOAL)));
+            long previous = 0;
+            for (int i = 0; i < depth; i++) {
+                List<?> moves = (List<?>) (Object) LEGAL_MOVES.invokeExact(board);
+                Object next;
+                do {
+                    next = moves.get(random.nextInt(moves.size()));
+                } while ((long) PACKED.invokeExact(next) == previous);
+                previous = (long) PACKED.invokeExact(board);
+                board = next;
+            }
+            return (long) PACKED.invokeExact(board);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    // a fresh board, with no parent chain, using the named heuristic
+    static Object board(long packed, Object heuristic) throws Throwable {
+        Object board = (Object) FROM_PACKED.invokeExact(packed);
+        USE_HEURISTIC.invokeExact(board, heuristic);
+        return board;
+    }
+
+    static Object heuristicNamed(String name) throws Throwable {
+        Object heuristic = (Object) HEURISTIC_NAMED.invokeExact(name);
+        if (heuristic == null) {
+            throw new IllegalArgumentException("unknown heuristic " + name);
+        }
+        return heuristic;
+    }
+
+    static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+
+    // A spread of boards, so move generation sees the blank in every kind of cell
+    @State(Scope.Thread)
+    public static class Boards {
+        @Param({"manhattan", "linear", "walking"})
+        public String heuristic;
+
+        Object[] boards = new Object[64];
+        int next;
+
+        @Setup
+        public void setup() throws Throwable {
+            Object h = heuristicNamed(heuristic);
+            Random random = new Random(SEED);
+            for (int i = 0; i < boards.length; i++) {
+                boards[i] = board(randomWalk(20 + random.nextInt(40), random), h);
+            }
+        }
+
+        Object next() {
+            next = (next + 1) & (boards.length - 1);
+            return boards[next];
+        }
+    }
+
+    // A whole search from hw1/sample_input or from a random walk of the given depth
+    @State(Scope.Thread)
+    public static class Search {
+        @Param({"sample_input", "walk20", "walk30", "walk40", "walk50"})
+        public String board;
+
+        @Param({"manhattan", "linear"})
+        public String heuristic;
+
+        @Param({"astar", "ida"})
+        public String algorithm;
+
+        long start;
+        Object options;
+        MethodHandle search;
+
+        @Setup
+        public void setup() throws Throwable {
+            if (board.startsWith("walk")) {
+                int depth = Integer.parseInt(board.substring(4));
+                start = randomWalk(depth, new Random(SEED + depth));
+            } else {
+                String fileName = System.getProperty("numberpuzzle.input", "hw1/sample_input");
+                try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
+                    start = (long) PACKED.invokeExact(readPuzzle(in));
+                } catch (IOException e) {
+                    throw new IllegalStateException("cannot read " + fileName
+                            + "; run from the repo root or set -Dnumberpuzzle.input", e);
+                }
+            }
+            options = (Object) NEW_OPTIONS.invokeExact();
+            SET_HEURISTIC.invokeExact(options, heuristicNamed(heuristic));
+            search = algorithm.equals("ida") ? SEARCH_IDA : SEARCH;
+        }
+    }
+
+    // JMH reports a public field of an OPERATIONS counter as a rate, here expansions/s
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Expansions {
+        public long expansions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            expansions = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object legalMoves(Boards state) throws Throwable {
+        return (Object) LEGAL_MOVES.invokeExact(state.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int heuristic(Boards state) throws Throwable {
+        return (int) HEURISTIC.invokeExact(state.next());
+    }
+
+    // searches per second, plus the expansions/s counter
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Object search(Search state, Expansions counters) throws Throwable {
+        Object board = (Object) FROM_PACKED.invokeExact(state.start);
+        Object result = (Object) state.search.invokeExact(board, state.options);
+        counters.expansions += (long) EXPANDED.invokeExact((Object) STATS.invokeExact(result));
+        return (Object) STATUS.invokeExact(result);
+    }
+
+    public static void main(String[] args) throws Exception {
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(new CommandLineOptions(args));
+        if (args.length == 0) {
+            options.include(NumberPuzzleBench.class.getName());
+        }
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
@@ -3,9 +3,26 @@ import java.io.FileWriter;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Random;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.lang.Math;
 
 public class OthelloSolver {
@@ -17,6 +34,8 @@ public class OthelloSolver {
 	static final int BLACK = -1;
 	static final int TIE = 2;
 	static int MAX_DEPTH = 0;
+	static final int TABLE_BITS = 20;  // transposition table slots, as a power of two
+	static final int BATCH_TABLE_BITS = 18;  // per batch worker, so many workers stay small
 
 	Random rng = new Random();
 
@@ -24,7 +43,7 @@ public class OthelloSolver {
 	// int MINIMAX_SEARCH_DEPTH = 11;
 
 	static final boolean WHITE_TO_PLAY = true;
-	static final int DEMO_SEARCH_DEPTH = 5;
+	static final long DEMO_MOVE_MILLIS = 200;  // thinking time per move for the "play" opponent
 
 	// Rather than having you implement a full Othello player, which is hard to fit into the
 	// HackerRank paradigm, we're going to just evaluate board positions according to the evaluation
@@ -41,14 +60,101 @@ public class OthelloSolver {
     //
     // Take note of the provided functions - the gory details of capturing pieces and so forth
     // have been implemented for you.
+    //
+    // "parallel N" searches on N threads instead, printing the same value, and nodes searched
+    // per second for each thread on stderr.  "play [book FILE] [weights FILE]" plays from an
+    // opening book, which "book FILE PLIES DEPTH" builds, and scores positions with pattern
+    // weights, which "weights FILE [STAGES]" writes a default set of.  "perft N [FILE...]"
+    // checks the move generators.  "batch [THREADS] [FILE]" evaluates a stream of inputs.
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("batch")) {
+			int threads = Runtime.getRuntime().availableProcessors();
+			String fileName = null;
+			for (int i = 1; i < args.length; i++) {
+				try {
+					threads = Integer.parseInt(args[i]);
+				} catch (NumberFormatException e) {
+					fileName = args[i];
+				}
+			}
+			try {
+				BufferedReader in = new BufferedReader(fileName == null
+						? new InputStreamReader(System.in) : new FileReader(fileName), 1 << 16);
+				analyzeBatch(in, new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16),
+						Math.max(1, threads));
+				in.close();
+			} catch (IOException e) {
+				System.err.println("Batch failed: " + e.getMessage());
+				System.exit(1);
+			}
+			System.exit(0);
+		}
 		if (args.length > 0 && args[0].equals("play")) {
-			play();
+			OpeningBook book = null;
+			PatternEvaluator evaluator = null;
+			for (int i = 1; i + 1 < args.length; i += 2) {
+				try {
+					if (args[i].equals("book")) {
+						book = OpeningBook.open(args[i + 1]);
+					} else if (args[i].equals("weights")) {
+						evaluator = PatternEvaluator.load(args[i + 1]);
+					} else {
+						System.err.println("Unknown play option " + args[i]);
+						System.exit(0);
+					}
+				} catch (IOException e) {
+					System.err.println("Could not open " + args[i] + ": " + e.getMessage());
+					System.exit(0);
+				}
+			}
+			play(book, evaluator);
 			System.exit(0);
 		}
+		if (args.length > 1 && args[0].equals("weights")) {
+			try {
+				PatternEvaluator.writeDefault(args[1], args.length > 2 ? Integer.parseInt(args[2]) : 4);
+			} catch (IOException | NumberFormatException e) {
+				System.err.println("Could not write pattern weights: " + e.getMessage());
+			}
+			System.exit(0);
+		}
+		if (args.length > 1 && args[0].equals("perft")) {
+			try {
+				perftMode(args);
+			} catch (NumberFormatException e) {
+				System.err.println("Could not read perft depth " + args[1]);
+			}
+			System.exit(0);
+		}
+		if (args.length > 3 && args[0].equals("book")) {
+			try {
+				OpeningBook.build(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+			} catch (IOException | NumberFormatException e) {
+				System.err.println("Could not build opening book: " + e.getMessage());
+			}
+			System.exit(0);
+		}
+		int threads = 0;
+		if (args.length > 1 && args[0].equals("parallel")) {
+			try {
+				threads = Integer.parseInt(args[1]);
+			} catch (NumberFormatException e) {
+				System.err.println("Could not read thread count " + args[1]);
+				System.exit(0);
+			}
+		}
 		Scanner myScanner = new Scanner(System.in);
 		MAX_DEPTH = readDepth(myScanner);
 		int[][] board = readBoard(myScanner);
+		if (threads > 0 && MAX_DEPTH > 0) {
+			ParallelSearcher searcher = new ParallelSearcher(threads, TABLE_BITS);
+			// null when white has to pass; minimax_value() below handles that
+			if (searcher.bestMove(board, WHITE_TO_PLAY, MAX_DEPTH, 0) != null) {
+				System.out.println(searcher.main().value);
+				System.err.println(searcher.nodeRates());
+				return;
+			}
+		}
 		System.out.println(minimax_value(board, WHITE_TO_PLAY, 0, Float.NEGATIVE_INFINITY,
 						   Float.POSITIVE_INFINITY));
 	}
@@ -246,16 +352,325 @@ public class OthelloSolver {
 	}
 	//-------
 
+	//------- bitboards
+	// A position is two longs, one per color, with bit (row * 8 + col) set where that color
+	// has a disc.  Move generation and capture work on all squares at once by shifting a
+	// whole bitboard one step in a direction; each direction has a mask of the squares a
+	// shift can land on without wrapping around to the other edge of the board.
+
+	static final long NOT_COLUMN_0 = 0xfefefefefefefefeL;
+	static final long NOT_COLUMN_7 = 0x7f7f7f7f7f7f7f7fL;
+	// shift amount per direction (negative shifts right) and the squares it can land on:
+	// right, left, down, up, down-right, down-left, up-right, up-left
+	static final int[] DIRECTION_SHIFTS = {1, -1, 8, -8, 9, 7, -7, -9};
+	static final long[] DIRECTION_MASKS = {NOT_COLUMN_0, NOT_COLUMN_7, -1L, -1L,
+			NOT_COLUMN_0, NOT_COLUMN_7, NOT_COLUMN_0, NOT_COLUMN_7};
+
+	static long bitsOf(int[][] board, int color) {
+		long bits = 0;
+		for (int row = 0; row < NUM_COLUMNS; row++) {
+			for (int col = 0; col < NUM_COLUMNS; col++) {
+				if (board[row][col] == color) {
+					bits |= 1L << (row * NUM_COLUMNS + col);
+				}
+			}
+		}
+		return bits;
+	}
+
+	static long shift(long bits, int amount) {
+		return amount > 0 ? bits << amount : bits >>> -amount;
+	}
+
+	// Kogge-Stone occluded fill: gen plus every square reachable from it by steps in the
+	// direction through squares of pro, in three doubling steps instead of up to six
+	static long fill(long gen, long pro, int amount, long mask) {
+		pro &= mask;
+		gen |= pro & shift(gen, amount);
+		pro &= shift(pro, amount);
+		gen |= pro & shift(gen, 2 * amount);
+		pro &= shift(pro, 2 * amount);
+		gen |= pro & shift(gen, 4 * amount);
+		return gen;
+	}
+
+	// Every empty square where the player with discs 'own' could play: at the end of a run
+	// of opponent discs that starts next to one of its own
+	static long legalMoves(long own, long opp) {
+		long empty = ~(own | opp);
+		long moves = 0;
+		for (int d = 0; d < 8; d++) {
+			int amount = DIRECTION_SHIFTS[d];
+			long mask = DIRECTION_MASKS[d];
+			long run = fill(own, opp, amount, mask) & opp;
+			moves |= shift(run, amount) & mask & empty;
+		}
+		return moves;
+	}
+
+	// The opponent discs turned over when 'own' plays the single-bit square 'move'
+	static long flips(long own, long opp, long move) {
+		long flipped = 0;
+		for (int d = 0; d < 8; d++) {
+			int amount = DIRECTION_SHIFTS[d];
+			long mask = DIRECTION_MASKS[d];
+			// the opponent discs in a line from the move; they turn over if one of ours ends it
+			long run = fill(move, opp, amount, mask) & opp;
+			if ((shift(run, amount) & mask & own) != 0) {
+				flipped |= run;
+			}
+		}
+		return flipped;
+	}
+
+	// The position a search works on, changed in place: make() plays a move and returns the
+	// discs it turned over, and unmake() with the same arguments takes the move back.  One
+	// Position per search thread is all the recursion needs, so nothing is allocated per node.
+	static final class Position {
+		long white;
+		long black;
+		long hash;  // Zobrist hash of the discs, kept current by make() and unmake()
+		TranspositionTable table;  // results shared between transpositions; null for none
+		int[] patterns;  // PatternEvaluator's indices, kept current by make() and unmake(); null for none
+		long nodes;  // minimax_value() calls on this position, for measuring
+
+		Position(long white, long black) {
+			set(white, black);
+		}
+
+		// starts over from these discs, keeping table and dropping any pattern indices
+		void set(long white, long black) {
+			this.white = white;
+			this.black = black;
+			hash = 0;
+			patterns = null;
+			for (int square = 0; square < 64; square++) {
+				if ((white & (1L << square)) != 0) {
+					hash ^= ZOBRIST_WHITE[square];
+				} else if ((black & (1L << square)) != 0) {
+					hash ^= ZOBRIST_BLACK[square];
+				}
+			}
+		}
+
+		Position(int[][] board) {
+			this(bitsOf(board, WHITE), bitsOf(board, BLACK));
+		}
+
+		// plays the single-bit square 'move' for the side to move; returns the discs flipped
+		long make(long move, boolean whiteTurn) {
+			long flipped;
+			if (whiteTurn) {
+				flipped = flips(white, black, move);
+				white ^= move | flipped;
+				black ^= flipped;
+			} else {
+				flipped = flips(black, white, move);
+				black ^= move | flipped;
+				white ^= flipped;
+			}
+			rehash(move, flipped, whiteTurn);
+			if (patterns != null) {
+				PatternEvaluator.update(patterns, move, flipped, whiteTurn, 1);
+			}
+			return flipped;
+		}
+
+		void unmake(long move, long flipped, boolean whiteTurn) {
+			if (whiteTurn) {
+				white ^= move | flipped;
+				black ^= flipped;
+			} else {
+				black ^= move | flipped;
+				white ^= flipped;
+			}
+			rehash(move, flipped, whiteTurn);
+			if (patterns != null) {
+				PatternEvaluator.update(patterns, move, flipped, whiteTurn, -1);
+			}
+		}
+
+		// XOR is its own inverse, so the same update serves make() and unmake()
+		private void rehash(long move, long flipped, boolean whiteTurn) {
+			int square = Long.numberOfTrailingZeros(move);
+			hash ^= (whiteTurn ? ZOBRIST_WHITE : ZOBRIST_BLACK)[square];
+			for (long f = flipped; f != 0; f &= f - 1) {
+				hash ^= ZOBRIST_FLIP[Long.numberOfTrailingZeros(f)];
+			}
+		}
+
+		// the table key: the discs plus whose turn it is
+		long key(boolean whiteTurn) {
+			return whiteTurn ? hash ^ ZOBRIST_WHITE_TO_MOVE : hash;
+		}
+	}
+
+	// Zobrist keys: a random number per (color, square), XORed together over the discs on
+	// the board.  Fixed seed, so hashes are the same from run to run.
+	static final long[] ZOBRIST_WHITE = new long[64];
+	static final long[] ZOBRIST_BLACK = new long[64];
+	static final long[] ZOBRIST_FLIP = new long[64];  // a disc changing color
+	static final long ZOBRIST_WHITE_TO_MOVE;
+	static {
+		Random keys = new Random(0x5eed0fdeadbeefL);
+		for (int square = 0; square < 64; square++) {
+			ZOBRIST_WHITE[square] = keys.nextLong();
+			ZOBRIST_BLACK[square] = keys.nextLong();
+			ZOBRIST_FLIP[square] = ZOBRIST_WHITE[square] ^ ZOBRIST_BLACK[square];
+		}
+		ZOBRIST_WHITE_TO_MOVE = keys.nextLong();
+	}
+
+	// Fixed-size hash table of search results, one slot per key's low bits, kept in two
+	// long arrays: the full key, and the result packed as value (float bits, low 32),
+	// depth searched (8 bits), bound type (2 bits), best move's square (7 bits) and the
+	// generation (8 bits) it was stored in.  A slot goes to whichever result searched deeper
+	// (depth-preferred); ties, and anything left from an earlier generation, go to the new one.
+	// Searches on several threads share one table without locks: the key is stored XORed
+	// with its data, so a slot caught half written by two threads fails the key check on
+	// probe instead of pairing one position's key with another's result.
+	static final class TranspositionTable {
+		static final int EXACT = 1;  // value is the position's value
+		static final int LOWER = 2;  // the value is at least this (the search failed high)
+		static final int UPPER = 3;  // the value is at most this (the search failed low)
+		static final int NO_MOVE = 64;
+
+		private final long[] keys;
+		private final long[] data;
+		private final int mask;
+		private long generation;
+
+		TranspositionTable(int bits) {
+			keys = new long[1 << bits];
+			data = new long[1 << bits];
+			mask = (1 << bits) - 1;
+		}
+
+		// the packed entry for key, or 0 if it is not in the table
+		long probe(long key) {
+			int i = (int) key & mask;
+			long entry = data[i];
+			return (keys[i] ^ entry) == key ? entry : 0;
+		}
+
+		void store(long key, int depth, int bound, float value, int move) {
+			int i = (int) key & mask;
+			long old = data[i];
+			if ((keys[i] ^ old) != key && old != 0 && depth(old) > depth
+					&& (old >>> 49) == generation) {
+				return;
+			}
+			long entry = (Float.floatToIntBits(value) & 0xffffffffL) | ((long) depth << 32)
+					| ((long) bound << 40) | ((long) move << 42) | (generation << 49);
+			keys[i] = key ^ entry;
+			data[i] = entry;
+		}
+
+		// empties the table in place, for measuring searches that must start from nothing
+		void clear() {
+			Arrays.fill(keys, 0);
+			Arrays.fill(data, 0);
+		}
+
+		// called per search, so positions from earlier in the game stop holding their slots
+		void newGeneration() {
+			generation = (generation + 1) & 0xff;
+		}
+
+		static float value(long entry) {
+			return Float.intBitsToFloat((int) entry);
+		}
+
+		static int depth(long entry) {
+			return (int) (entry >>> 32) & 0xff;
+		}
+
+		static int bound(long entry) {
+			return (int) (entry >>> 40) & 0x3;
+		}
+
+		static int move(long entry) {
+			return (int) (entry >>> 42) & 0x7f;
+		}
+	}
+
+	// In-place alternative to play(): puts the disc down, turns over what it captures, and
+	// returns the captured squares as a bitboard so unmakeMove() can turn them back
+	static long makeMove(int[][] board, Move move, boolean whiteTurn) {
+		int color = (whiteTurn ? WHITE : BLACK);
+		long flipped = flips(bitsOf(board, color), bitsOf(board, -color),
+				1L << (move.row * NUM_COLUMNS + move.col));
+		board[move.row][move.col] = color;
+		for (long f = flipped; f != 0; f &= f - 1) {
+			int square = Long.numberOfTrailingZeros(f);
+			board[square / NUM_COLUMNS][square % NUM_COLUMNS] = color;
+		}
+		return flipped;
+	}
+
+	static void unmakeMove(int[][] board, Move move, long flipped) {
+		board[move.row][move.col] = NOBODY;
+		for (long f = flipped; f != 0; f &= f - 1) {
+			int square = Long.numberOfTrailingZeros(f);
+			// Take advantage of enum values and flip the owner back
+			board[square / NUM_COLUMNS][square % NUM_COLUMNS] = -board[square / NUM_COLUMNS][square % NUM_COLUMNS];
+		}
+	}
+
+	// minimax_value()'s tables, one per thread, kept from call to call: a result depends only
+	// on the position, the side to move and the depth left, so old entries are still right
+	static final ThreadLocal<TranspositionTable> MINIMAX_TABLES =
+			ThreadLocal.withInitial(() -> new TranspositionTable(TABLE_BITS));
+
 	static float minimax_value(int board[][], boolean whiteTurn, int searchDepth, float alpha, float beta) {
+		Position pos = new Position(board);
+		// a few plies have too few transpositions to be worth the probes
+		if (MAX_DEPTH - searchDepth >= 4) {
+			pos.table = MINIMAX_TABLES.get();
+			pos.table.newGeneration();
+		}
+		return minimax_value(pos, whiteTurn, searchDepth, alpha, beta);
+	}
+
+	// pos is played into and restored in place; it is as it was when this returns.
+	// With pos.table set, positions already searched to the same remaining depth are answered
+	// from the table.  Only the same depth will do: a deeper result is a different number
+	// than the depth-limited value asked for.  A stored best move of any depth is tried first.
+	static float minimax_value(Position pos, boolean whiteTurn, int searchDepth, float alpha, float beta) {
+		pos.nodes++;
+		int remaining = MAX_DEPTH - searchDepth;
+		int empties = 64 - Long.bitCount(pos.white | pos.black);
+		if (remaining >= empties && empties <= ENDGAME_EMPTIES) {
+			return solveEndgame(pos.white, pos.black, whiteTurn);
+		}
+		long key = 0;
+		int hintMove = TranspositionTable.NO_MOVE;
+		if (pos.table != null && remaining > 0) {
+			key = pos.key(whiteTurn);
+			long entry = pos.table.probe(key);
+			if (entry != 0) {
+				if (TranspositionTable.depth(entry) == remaining) {
+					float stored = TranspositionTable.value(entry);
+					int bound = TranspositionTable.bound(entry);
+					if (bound == TranspositionTable.EXACT
+							|| (bound == TranspositionTable.LOWER && stored >= beta)
+							|| (bound == TranspositionTable.UPPER && stored <= alpha)) {
+						return stored;
+					}
+				}
+				hintMove = TranspositionTable.move(entry);
+			}
+		}
+
 		// decided to just generate these here instead of using the given functions
 		// to prevent extra calculations since multiple parts of this minimax function
 		// require these values
-		ArrayList<Move> whiteLegalMoves = generateLegalMoves(board, true);
-		ArrayList<Move> blackLegalMoves = generateLegalMoves(board, false);
-		float evalOutput = evaluationFunction(board);
+		long whiteLegalMoves = legalMoves(pos.white, pos.black);
+		long blackLegalMoves = legalMoves(pos.black, pos.white);
+		float evalOutput = Long.bitCount(pos.white) - Long.bitCount(pos.black);
 
 		// if the game is over
-		if (whiteLegalMoves.isEmpty() && blackLegalMoves.isEmpty()) {
+		if (whiteLegalMoves == 0 && blackLegalMoves == 0) {
 			// white wins
 			if (evalOutput > 0) {
 				return WIN_VAL;
@@ -276,47 +691,1216 @@ public class OthelloSolver {
 		}
 
 		// if it is white's turn and white has no moves
-		if (whiteTurn && whiteLegalMoves.isEmpty()) {
+		if (whiteTurn && whiteLegalMoves == 0) {
 			// let black move, depth stays the same
-			return minimax_value(board, false, searchDepth, alpha, beta);
+			return minimax_value(pos, false, searchDepth, alpha, beta);
 		}
 
 		// if it is black's turn and black has no moves
-		if (!whiteTurn && blackLegalMoves.isEmpty()) {
+		if (!whiteTurn && blackLegalMoves == 0) {
 			// let white move, depth stays the same
-			return minimax_value(board, true, searchDepth, alpha, beta);
+			return minimax_value(pos, true, searchDepth, alpha, beta);
 		}
 
+		// the table's move first, then the rest lowest bit first, which is the row-by-row
+		// order of generateLegalMoves
+		float alphaIn = alpha;
+		float betaIn = beta;
+		long pending = whiteTurn ? whiteLegalMoves : blackLegalMoves;
+		long move = hintMove == TranspositionTable.NO_MOVE ? 0 : pending & (1L << hintMove);
+		if (move == 0) {
+			move = pending & -pending;
+		}
+		int bestMove = TranspositionTable.NO_MOVE;
+		float val;
 		// MAX MOVE
 		if (whiteTurn) {
-			float val =  Float.NEGATIVE_INFINITY;
-			for (Move m : whiteLegalMoves) {
-				int[][] nextBoard = play(board, m, true);
-				float newVal = minimax_value(nextBoard, false, searchDepth + 1, alpha, beta);
-				val = Math.max(val, newVal);
+			val =  Float.NEGATIVE_INFINITY;
+			for (; move != 0; move = pending & -pending) {
+				pending &= ~move;
+				long flipped = pos.make(move, true);
+				float newVal = minimax_value(pos, false, searchDepth + 1, alpha, beta);
+				pos.unmake(move, flipped, true);
+				if (newVal > val) {
+					val = newVal;
+					bestMove = Long.numberOfTrailingZeros(move);
+				}
 				// beta bound
 				if (val >= beta) {
-					return val;
+					break;
 				}
 				alpha = Math.max(val, alpha);
 			}
-			return val;
 		} else { // MIN MOVE
-			float val =  Float.POSITIVE_INFINITY;
-			for (Move m : blackLegalMoves) {
-				int[][] nextBoard = play(board, m, false);
-				float newVal = minimax_value(nextBoard, true, searchDepth + 1, alpha, beta);
-				val = Math.min(val, newVal);
+			val =  Float.POSITIVE_INFINITY;
+			for (; move != 0; move = pending & -pending) {
+				pending &= ~move;
+				long flipped = pos.make(move, false);
+				float newVal = minimax_value(pos, true, searchDepth + 1, alpha, beta);
+				pos.unmake(move, flipped, false);
+				if (newVal < val) {
+					val = newVal;
+					bestMove = Long.numberOfTrailingZeros(move);
+				}
 				// alpha bound
 				if (val <= alpha) {
-					return val;
+					break;
 				}
 				beta = Math.min(val, beta);
 			}
-			return val;
 		}
+		if (pos.table != null) {
+			// against the window this node was given: at or below it only bounds the value
+			// from above, at or above it only from below
+			int bound = val <= alphaIn ? TranspositionTable.UPPER
+					: val >= betaIn ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			pos.table.store(key, remaining, bound, val, bestMove);
+		}
+		return val;
 	}
 	
+	// Pattern evaluation: the board is read as a set of lines and blocks of squares (each
+	// edge with its two X squares, each corner's 3x3 block, every row and column further in,
+	// and the diagonals of 4 to 8 squares), each pattern's contents is a base-3 number (a
+	// digit per square: empty 0, black 1, white 2), and the value for white is the sum of
+	// those numbers looked up in a weight table per pattern type.  A type's tables are shared
+	// by its rotated and reflected copies.  The indices are kept in Position.patterns and
+	// updated by make()/unmake(), so an evaluation is one table read per pattern.
+	//
+	// Weights come from a file: "OPW1", the number of game stages, then for each stage (by
+	// discs on the board, opening first) and each type below, 3^squares floats.
+	static final class PatternEvaluator {
+		static final int MAGIC = 0x4f505731;  // "OPW1"
+		// each type as (row, col) pairs, in one orientation; copies are made by symmetry
+		static final int[][][] TYPES = {
+			{{0, 0}, {0, 1}, {0, 2}, {0, 3}, {0, 4}, {0, 5}, {0, 6}, {0, 7}, {1, 1}, {1, 6}},  // edge + 2X
+			{{0, 0}, {0, 1}, {0, 2}, {1, 0}, {1, 1}, {1, 2}, {2, 0}, {2, 1}, {2, 2}},  // corner 3x3
+			{{1, 0}, {1, 1}, {1, 2}, {1, 3}, {1, 4}, {1, 5}, {1, 6}, {1, 7}},  // second row
+			{{2, 0}, {2, 1}, {2, 2}, {2, 3}, {2, 4}, {2, 5}, {2, 6}, {2, 7}},  // third row
+			{{3, 0}, {3, 1}, {3, 2}, {3, 3}, {3, 4}, {3, 5}, {3, 6}, {3, 7}},  // fourth row
+			{{0, 0}, {1, 1}, {2, 2}, {3, 3}, {4, 4}, {5, 5}, {6, 6}, {7, 7}},  // long diagonal
+			{{0, 1}, {1, 2}, {2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 7}},
+			{{0, 2}, {1, 3}, {2, 4}, {3, 5}, {4, 6}, {5, 7}},
+			{{0, 3}, {1, 4}, {2, 5}, {3, 6}, {4, 7}},
+			{{0, 4}, {1, 5}, {2, 6}, {3, 7}}
+		};
+		static final int[] TYPE_SIZES = new int[TYPES.length];  // 3^squares
+		static final int[] INSTANCE_TYPE;  // the type of each copy
+		static final int[][] INSTANCE_SQUARES;
+		// for each square, the copies it is in and its digit's place value in each
+		static final int[][] SQUARE_INSTANCES = new int[64][];
+		static final int[][] SQUARE_POWERS = new int[64][];
+		static {
+			ArrayList<int[]> instances = new ArrayList<int[]>();
+			ArrayList<Integer> types = new ArrayList<Integer>();
+			for (int type = 0; type < TYPES.length; type++) {
+				TYPE_SIZES[type] = (int) Math.pow(3, TYPES[type].length);
+				ArrayList<Long> seen = new ArrayList<Long>();
+				for (int t = 0; t < 8; t++) {
+					int[] squares = new int[TYPES[type].length];
+					long set = 0;
+					for (int i = 0; i < squares.length; i++) {
+						long bit = transform(1L << (TYPES[type][i][0] * NUM_COLUMNS + TYPES[type][i][1]), t);
+						squares[i] = Long.numberOfTrailingZeros(bit);
+						set |= bit;
+					}
+					// a pattern symmetric under t has it already, in another order
+					if (!seen.contains(set)) {
+						seen.add(set);
+						instances.add(squares);
+						types.add(type);
+					}
+				}
+			}
+			INSTANCE_SQUARES = instances.toArray(new int[0][]);
+			INSTANCE_TYPE = new int[types.size()];
+			for (int i = 0; i < INSTANCE_TYPE.length; i++) {
+				INSTANCE_TYPE[i] = types.get(i);
+			}
+			for (int square = 0; square < 64; square++) {
+				ArrayList<int[]> uses = new ArrayList<int[]>();
+				for (int i = 0; i < INSTANCE_SQUARES.length; i++) {
+					int power = 1;
+					for (int sq : INSTANCE_SQUARES[i]) {
+						if (sq == square) {
+							uses.add(new int[] {i, power});
+						}
+						power *= 3;
+					}
+				}
+				SQUARE_INSTANCES[square] = new int[uses.size()];
+				SQUARE_POWERS[square] = new int[uses.size()];
+				for (int u = 0; u < uses.size(); u++) {
+					SQUARE_INSTANCES[square][u] = uses.get(u)[0];
+					SQUARE_POWERS[square][u] = uses.get(u)[1];
+				}
+			}
+		}
+
+		private final float[][][] weights;  // [stage][type][index]
+
+		PatternEvaluator(float[][][] weights) {
+			this.weights = weights;
+		}
+
+		static PatternEvaluator load(String fileName) throws IOException {
+			FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+			try {
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.capacity() < 8 || buffer.getInt() != MAGIC) {
+					throw new IOException(fileName + " is not a pattern weight file");
+				}
+				int stages = buffer.getInt();
+				long perStage = 0;
+				for (int size : TYPE_SIZES) {
+					perStage += size;
+				}
+				if (stages < 1 || 8 + stages * perStage * 4 != buffer.capacity()) {
+					throw new IOException(fileName + " does not hold weights for these patterns");
+				}
+				float[][][] weights = new float[stages][TYPES.length][];
+				for (int stage = 0; stage < stages; stage++) {
+					for (int type = 0; type < TYPES.length; type++) {
+						weights[stage][type] = new float[TYPE_SIZES[type]];
+						buffer.asFloatBuffer().get(weights[stage][type]);
+						buffer.position(buffer.position() + 4 * TYPE_SIZES[type]);
+					}
+				}
+				return new PatternEvaluator(weights);
+			} finally {
+				channel.close();
+			}
+		}
+
+		// the indices for a position, from scratch; make() and unmake() keep them current
+		static int[] indices(long white, long black) {
+			int[] indices = new int[INSTANCE_SQUARES.length];
+			for (int i = 0; i < indices.length; i++) {
+				int[] squares = INSTANCE_SQUARES[i];
+				for (int j = squares.length - 1; j >= 0; j--) {
+					long bit = 1L << squares[j];
+					indices[i] = indices[i] * 3 + ((white & bit) != 0 ? 2 : (black & bit) != 0 ? 1 : 0);
+				}
+			}
+			return indices;
+		}
+
+		// sign 1 for make(), -1 to undo it: the mover's disc goes from 0 to its digit, and
+		// each flipped disc goes between 1 and 2
+		static void update(int[] indices, long move, long flipped, boolean whiteTurn, int sign) {
+			int square = Long.numberOfTrailingZeros(move);
+			int placed = sign * (whiteTurn ? 2 : 1);
+			int[] instances = SQUARE_INSTANCES[square];
+			int[] powers = SQUARE_POWERS[square];
+			for (int u = 0; u < instances.length; u++) {
+				indices[instances[u]] += placed * powers[u];
+			}
+			int turned = whiteTurn ? sign : -sign;
+			for (long f = flipped; f != 0; f &= f - 1) {
+				square = Long.numberOfTrailingZeros(f);
+				instances = SQUARE_INSTANCES[square];
+				powers = SQUARE_POWERS[square];
+				for (int u = 0; u < instances.length; u++) {
+					indices[instances[u]] += turned * powers[u];
+				}
+			}
+		}
+
+		// the value for white of pos, whose patterns must be set
+		float evaluate(Position pos) {
+			int discs = Long.bitCount(pos.white | pos.black);
+			float[][] tables = weights[(discs - 4) * weights.length / 61];
+			float value = 0;
+			int[] indices = pos.patterns;
+			for (int i = 0; i < indices.length; i++) {
+				value += tables[INSTANCE_TYPE[i]][indices[i]];
+			}
+			return value;
+		}
+
+		// Writes a starting set of weights in place of fitted ones: a square-by-square table
+		// (corners good, the squares next to them bad, edges fair) shared out between the
+		// patterns covering each square, plus a disc count that grows over the stages.
+		static void writeDefault(String fileName, int stages) throws IOException {
+			float[] squareValues = {
+				 8, -2,  2,  1,  1,  2, -2,  8,
+				-2, -4, -1, -1, -1, -1, -4, -2,
+				 2, -1,  1,  0,  0,  1, -1,  2,
+				 1, -1,  0,  0,  0,  0, -1,  1,
+				 1, -1,  0,  0,  0,  0, -1,  1,
+				 2, -1,  1,  0,  0,  1, -1,  2,
+				-2, -4, -1, -1, -1, -1, -4, -2,
+				 8, -2,  2,  1,  1,  2, -2,  8
+			};
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(stages);
+				for (int stage = 0; stage < stages; stage++) {
+					float discValue = stages == 1 ? 1 : (float) stage / (stages - 1);
+					for (int type = 0; type < TYPES.length; type++) {
+						// the type's squares as its first copy has them
+						int instance = 0;
+						while (INSTANCE_TYPE[instance] != type) {
+							instance++;
+						}
+						int[] squares = INSTANCE_SQUARES[instance];
+						for (int index = 0; index < TYPE_SIZES[type]; index++) {
+							float value = 0;
+							for (int j = 0, rest = index; j < squares.length; j++, rest /= 3) {
+								int digit = rest % 3;
+								if (digit != 0) {
+									float share = (squareValues[squares[j]] + discValue)
+											/ SQUARE_INSTANCES[squares[j]].length;
+									value += digit == 2 ? share : -share;
+								}
+							}
+							out.writeFloat(value);
+						}
+					}
+				}
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	// Endgame solver: the value of the game played out to the end, which is what
+	// minimax_value() finds once its depth reaches the number of empty squares.  Every line
+	// then ends in a finished game, so the value is only ever WIN_VAL, -WIN_VAL or TIE and
+	// the search just needs the sign of the final disc difference: it runs on bitboards with
+	// a window inside -1..1, in the mover's terms (the opponent's result negated).  Moves are
+	// ordered fastest-first (fewest replies for the opponent) while many squares are empty,
+	// then by parity (quadrants with an odd number of empties first, to get the last move
+	// there); the last few empties skip move generation and just try each square.
+	static final int ENDGAME_EMPTIES = 20;  // minimax_value() solves from this many empties
+	static final int FASTEST_FIRST_EMPTIES = 7;  // fewer than this are ordered by parity only
+	static final int SMALL_EMPTIES = 4;
+	// a Searcher on the clock solves from fewer, since a solve does not look at it
+	static final int SEARCH_ENDGAME_EMPTIES = 12;
+	static final long[] QUADRANTS = {0x000000000f0f0f0fL, 0x00000000f0f0f0f0L,
+									 0x0f0f0f0f00000000L, 0xf0f0f0f000000000L};
+
+	// the solver for this thread; see EndgameSolver
+	static float solveEndgame(long white, long black, boolean whiteTurn) {
+		return ENDGAME_SOLVERS.get().solve(white, black, whiteTurn);
+	}
+
+	static final ThreadLocal<EndgameSolver> ENDGAME_SOLVERS = ThreadLocal.withInitial(EndgameSolver::new);
+
+	// Holds the move lists for fastest-first ordering, one per number of empties (a child
+	// always has fewer), so the search allocates nothing; one per thread, like Searcher.
+	static final class EndgameSolver {
+		private final long[][] orders = new long[61][];
+
+		EndgameSolver() {
+			for (int empties = 0; empties < orders.length; empties++) {
+				orders[empties] = new long[empties];  // there can't be more moves than empties
+			}
+		}
+
+		float solve(long white, long black, boolean whiteTurn) {
+			int result = whiteTurn ? endgame(white, black, -1, 1, false) : -endgame(black, white, -1, 1, false);
+			return result > 0 ? WIN_VAL : result < 0 ? -WIN_VAL : TIE;
+		}
+
+		// the final result's sign for 'own', moving first; passed if the opponent just passed
+		private int endgame(long own, long opp, int alpha, int beta, boolean passed) {
+			long empty = ~(own | opp);
+			int empties = Long.bitCount(empty);
+			if (empties <= SMALL_EMPTIES) {
+				return endgameSmall(own, opp, empty, alpha, beta, passed);
+			}
+			long moves = legalMoves(own, opp);
+			if (moves == 0) {
+				if (passed) {
+					return Long.signum(Long.bitCount(own) - Long.bitCount(opp));
+				}
+				return -endgame(opp, own, -beta, -alpha, true);
+			}
+			long odd = oddQuadrants(empty);
+			int best = -2;  // below any result
+			if (empties < FASTEST_FIRST_EMPTIES) {
+				for (int pass = 0; pass < 2; pass++) {
+					for (long m = moves & (pass == 0 ? odd : ~odd); m != 0; m &= m - 1) {
+						long move = m & -m;
+						long flipped = flips(own, opp, move);
+						int v = -endgame(opp ^ flipped, own ^ flipped ^ move, -beta, -Math.max(alpha, best), false);
+						if (v > best) {
+							best = v;
+							if (best >= beta) {
+								return best;
+							}
+						}
+					}
+				}
+				return best;
+			}
+			// fastest first; sort keys are (opponent's replies, even quadrant) above the square,
+			// insertion sorted as they come, there being only a couple of dozen at most
+			long[] order = orders[empties];
+			int count = 0;
+			for (long m = moves; m != 0; m &= m - 1) {
+				long move = m & -m;
+				long flipped = flips(own, opp, move);
+				int replies = Long.bitCount(legalMoves(opp ^ flipped, own ^ flipped ^ move));
+				int square = Long.numberOfTrailingZeros(move);
+				long key = ((long) replies << 8) | ((odd & move) == 0 ? 1 << 6 : 0) | square;
+				int i = count++;
+				for (; i > 0 && order[i - 1] > key; i--) {
+					order[i] = order[i - 1];
+				}
+				order[i] = key;
+			}
+			for (int i = 0; i < count; i++) {
+				long move = 1L << (order[i] & 63);
+				long flipped = flips(own, opp, move);
+				int v = -endgame(opp ^ flipped, own ^ flipped ^ move, -beta, -Math.max(alpha, best), false);
+				if (v > best) {
+					best = v;
+					if (best >= beta) {
+						return best;
+					}
+				}
+			}
+			return best;
+		}
+	}
+
+	// the last few empties: each empty square tried in parity order, legal if it flips something
+	static int endgameSmall(long own, long opp, long empty, int alpha, int beta, boolean passed) {
+		if (Long.bitCount(empty) == 1) {
+			return lastEmpty(own, opp, empty);
+		}
+		long odd = oddQuadrants(empty);
+		int best = -2;
+		for (int pass = 0; pass < 2; pass++) {
+			for (long e = empty & (pass == 0 ? odd : ~odd); e != 0; e &= e - 1) {
+				long move = e & -e;
+				long flipped = flips(own, opp, move);
+				if (flipped == 0) {
+					continue;
+				}
+				int v = -endgameSmall(opp ^ flipped, own ^ flipped ^ move, empty ^ move,
+						-beta, -Math.max(alpha, best), false);
+				if (v > best) {
+					best = v;
+					if (best >= beta) {
+						return best;
+					}
+				}
+			}
+		}
+		if (best == -2) {
+			if (passed || empty == 0) {
+				return Long.signum(Long.bitCount(own) - Long.bitCount(opp));
+			}
+			return -endgameSmall(opp, own, empty, -beta, -alpha, true);
+		}
+		return best;
+	}
+
+	// one empty square left: whoever can play there does, 'own' first, and the game is over
+	static int lastEmpty(long own, long opp, long square) {
+		int ownCount = Long.bitCount(own);
+		int oppCount = Long.bitCount(opp);
+		int flipped = Long.bitCount(flips(own, opp, square));
+		if (flipped != 0) {
+			return Integer.signum(ownCount + flipped + 1 - (oppCount - flipped));
+		}
+		flipped = Long.bitCount(flips(opp, own, square));
+		if (flipped != 0) {
+			return Integer.signum(ownCount - flipped - (oppCount + flipped + 1));
+		}
+		return Integer.signum(ownCount - oppCount);
+	}
+
+	static long oddQuadrants(long empty) {
+		long odd = 0;
+		for (long quadrant : QUADRANTS) {
+			if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+				odd |= quadrant;
+			}
+		}
+		return odd;
+	}
+
+	// Picks a move by iterative deepening: searches 1 move ahead, then 2, 3, ... until a depth
+	// limit or a time budget runs out, and answers with the last depth that finished.  Each
+	// depth orders moves with what the shallower ones learned, so alpha-beta cuts off early:
+	// the table's best move first, then corners, then the two killer moves of the ply (moves
+	// that recently caused a cutoff there), then by history (how often a square has caused a
+	// cutoff, weighted by depth).  With no evaluator, values are the same as minimax_value()'s
+	// for that depth; with one, the depth limit is scored by its patterns instead of discs.
+	// One Searcher is meant to play a whole game; it is not thread safe, though several
+	// Searchers can share a table (see ParallelSearcher).
+	static final class Searcher {
+		static final int MAX_PLY = 128;  // 60 moves, plus passes, which can't come twice in a row
+		static final long CORNERS = 0x8100000000000081L;
+		// move scores: above every history score, in order of preference
+		static final int HINT_SCORE = 1 << 30;
+		static final int CORNER_SCORE = 1 << 29;
+		static final int KILLER_SCORE = 1 << 28;
+
+		private final TranspositionTable table;
+		private final int[][] killers = new int[MAX_PLY][2];
+		private final int[][] history = new int[2][64];  // by side to move (white 0), then square
+		private final int[][] squares = new int[MAX_PLY][64];  // move lists, one per ply
+		private final int[][] scores = new int[MAX_PLY][64];
+		private Position pos;
+		private final EndgameSolver endgame = new EndgameSolver();
+		PatternEvaluator evaluator;  // null to count discs, as minimax_value() does
+		private long deadline;  // System.nanoTime() to stop at; 0 for no limit
+		private int solveEmpties;  // solved exactly from this many empties, once the depth reaches them
+		private boolean stopped;
+		volatile boolean abort;  // set from another thread to stop the search at any depth
+
+		// results of the last bestMove()
+		long nodes;
+		long nanos;
+		int depth;  // deepest search that finished
+		float value;  // its value, for white as in minimax_value()
+
+		Searcher(int tableBits) {
+			this(new TranspositionTable(tableBits));
+		}
+
+		Searcher(TranspositionTable table) {
+			this.table = table;
+		}
+
+		// The best move for the side to move, searching at most maxDepth moves ahead and, if
+		// millis > 0, for about that long.  Depth 1 always finishes, however long it takes.
+		// Null if the side to move has to pass.  With no time limit the endgame is solved
+		// from as many empties as minimax_value() solves it.
+		Move bestMove(int[][] board, boolean whiteTurn, int maxDepth, long millis) {
+			table.newGeneration();
+			return deepen(board, whiteTurn, 1, maxDepth, millis);
+		}
+
+		// bestMove() without starting a new table generation, from firstDepth on
+		Move deepen(int[][] board, boolean whiteTurn, int firstDepth, int maxDepth, long millis) {
+			long start = System.nanoTime();
+			long moves = whiteTurn ? legalMoves(bitsOf(board, WHITE), bitsOf(board, BLACK))
+					: legalMoves(bitsOf(board, BLACK), bitsOf(board, WHITE));
+			if (moves == 0) {
+				return null;
+			}
+			startSearch(board);
+			solveEmpties = millis > 0 ? SEARCH_ENDGAME_EMPTIES : ENDGAME_EMPTIES;
+			long stopAt = start + millis * 1000000;
+			// once every empty square is looked at the value is exact; deeper adds nothing
+			int empties = 64 - Long.bitCount(pos.white | pos.black);
+			if (millis == 0 && maxDepth >= empties) {
+				firstDepth = empties;  // as in value()
+			}
+			int best = Long.numberOfTrailingZeros(moves);
+			for (int d = firstDepth; d <= maxDepth && d <= empties; d++) {
+				int move = searchRoot(whiteTurn, d, moves, best);
+				if (stopped) {
+					break;
+				}
+				best = move;
+				depth = d;
+				if (millis > 0) {
+					deadline = stopAt;
+					if (System.nanoTime() - stopAt >= 0) {
+						break;
+					}
+				}
+			}
+			nanos = System.nanoTime() - start;
+			return new Move(best / NUM_COLUMNS, best % NUM_COLUMNS);
+		}
+
+		// minimax_value() of the board at a fixed depth, as main prints it, passes and all;
+		// the shallower depths are searched first for their move ordering, and the endgame is
+		// solved from as many empties as minimax_value() solves it
+		float value(int[][] board, boolean whiteTurn, int depth) {
+			long start = System.nanoTime();
+			table.newGeneration();
+			startSearch(board);
+			solveEmpties = ENDGAME_EMPTIES;
+			// every line has ended by then, so any deeper gives the same value
+			int empties = 64 - Long.bitCount(pos.white | pos.black);
+			depth = Math.min(depth, empties);
+			// a search that reaches the end is mostly solves; the shallower ones before it
+			// could not use the solver, and would take far longer than it
+			int first = depth == empties ? depth : Math.min(1, depth);
+			float v = 0;
+			for (int d = first; d <= depth; d++) {
+				v = search(whiteTurn, d, 0, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+			}
+			this.depth = depth;
+			value = v;
+			nanos = System.nanoTime() - start;
+			return v;
+		}
+
+		private void startSearch(int[][] board) {
+			if (pos == null) {
+				pos = new Position(0, 0);
+			}
+			pos.set(bitsOf(board, WHITE), bitsOf(board, BLACK));
+			if (evaluator != null) {
+				pos.patterns = PatternEvaluator.indices(pos.white, pos.black);
+			}
+			for (int[] k : killers) {
+				k[0] = k[1] = TranspositionTable.NO_MOVE;
+			}
+			for (int[] h : history) {
+				for (int i = 0; i < h.length; i++) {
+					h[i] >>= 2;  // still a hint from the last search, but a weaker one
+				}
+			}
+			nodes = 0;
+			depth = 0;
+			stopped = false;
+			deadline = 0;
+		}
+
+		// one depth of the root; sets value, returns the best move's square
+		private int searchRoot(boolean whiteTurn, int depth, long moves, int previousBest) {
+			int count = orderMoves(moves, whiteTurn, 0, previousBest);
+			float alpha = Float.NEGATIVE_INFINITY;
+			float beta = Float.POSITIVE_INFINITY;
+			float best = whiteTurn ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+			int bestSquare = squares[0][0];
+			for (int i = 0; i < count; i++) {
+				int square = squares[0][i];
+				long move = 1L << square;
+				long flipped = pos.make(move, whiteTurn);
+				float moveVal = search(!whiteTurn, depth - 1, 1, alpha, beta);
+				pos.unmake(move, flipped, whiteTurn);
+				if (stopped) {
+					return bestSquare;
+				}
+				if (whiteTurn ? moveVal > best : moveVal < best) {
+					best = moveVal;
+					bestSquare = square;
+				}
+				if (whiteTurn) {
+					alpha = Math.max(alpha, best);
+				} else {
+					beta = Math.min(beta, best);
+				}
+			}
+			table.store(pos.key(whiteTurn), depth, TranspositionTable.EXACT, best, bestSquare);
+			value = best;
+			return bestSquare;
+		}
+
+		// minimax_value() with remaining depth counting down, the move ordering, and a way out
+		// when time is up (the result is then meaningless, and stopped is set)
+		private float search(boolean whiteTurn, int depth, int ply, float alpha, float beta) {
+			if ((++nodes & 1023) == 0
+					&& (abort || (deadline != 0 && System.nanoTime() - deadline >= 0))) {
+				stopped = true;
+			}
+			if (stopped) {
+				return 0;
+			}
+			int empties = 64 - Long.bitCount(pos.white | pos.black);
+			if (depth >= empties && empties <= solveEmpties) {
+				return endgame.solve(pos.white, pos.black, whiteTurn);
+			}
+			long key = 0;
+			int hintMove = TranspositionTable.NO_MOVE;
+			if (depth > 0) {
+				key = pos.key(whiteTurn);
+				long entry = table.probe(key);
+				if (entry != 0) {
+					if (TranspositionTable.depth(entry) == depth) {
+						float stored = TranspositionTable.value(entry);
+						int bound = TranspositionTable.bound(entry);
+						if (bound == TranspositionTable.EXACT
+								|| (bound == TranspositionTable.LOWER && stored >= beta)
+								|| (bound == TranspositionTable.UPPER && stored <= alpha)) {
+							return stored;
+						}
+					}
+					hintMove = TranspositionTable.move(entry);
+				}
+			}
+
+			long whiteLegalMoves = legalMoves(pos.white, pos.black);
+			long blackLegalMoves = legalMoves(pos.black, pos.white);
+			float evalOutput = Long.bitCount(pos.white) - Long.bitCount(pos.black);
+			if (whiteLegalMoves == 0 && blackLegalMoves == 0) {
+				return evalOutput > 0 ? WIN_VAL : evalOutput < 0 ? -WIN_VAL : TIE;
+			}
+			if (depth == 0) {
+				return evaluator == null ? evalOutput : evaluator.evaluate(pos);
+			}
+			long moves = whiteTurn ? whiteLegalMoves : blackLegalMoves;
+			if (moves == 0) {
+				// pass; depth stays the same
+				return search(!whiteTurn, depth, ply + 1, alpha, beta);
+			}
+
+			float alphaIn = alpha;
+			float betaIn = beta;
+			int count = orderMoves(moves, whiteTurn, ply, hintMove);
+			int[] list = squares[ply];
+			float val = whiteTurn ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+			int bestMove = list[0];
+			for (int i = 0; i < count; i++) {
+				int square = list[i];
+				long move = 1L << square;
+				long flipped = pos.make(move, whiteTurn);
+				float newVal = search(!whiteTurn, depth - 1, ply + 1, alpha, beta);
+				pos.unmake(move, flipped, whiteTurn);
+				if (stopped) {
+					return 0;
+				}
+				if (whiteTurn ? newVal > val : newVal < val) {
+					val = newVal;
+					bestMove = square;
+				}
+				if (whiteTurn ? val >= beta : val <= alpha) {
+					rememberCutoff(whiteTurn, ply, square, depth);
+					break;
+				}
+				if (whiteTurn) {
+					alpha = Math.max(val, alpha);
+				} else {
+					beta = Math.min(val, beta);
+				}
+			}
+			int bound = val <= alphaIn ? TranspositionTable.UPPER
+					: val >= betaIn ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			table.store(key, depth, bound, val, bestMove);
+			return val;
+		}
+
+		// fills squares[ply] with the moves, best first; returns how many there are
+		private int orderMoves(long moves, boolean whiteTurn, int ply, int hintMove) {
+			int[] list = squares[ply];
+			int[] score = scores[ply];
+			int[] sideHistory = history[whiteTurn ? 0 : 1];
+			int count = 0;
+			for (long m = moves; m != 0; m &= m - 1) {
+				int square = Long.numberOfTrailingZeros(m);
+				int s;
+				if (square == hintMove) {
+					s = HINT_SCORE;
+				} else if ((CORNERS & (1L << square)) != 0) {
+					s = CORNER_SCORE;
+				} else if (square == killers[ply][0]) {
+					s = KILLER_SCORE + 1;
+				} else if (square == killers[ply][1]) {
+					s = KILLER_SCORE;
+				} else {
+					s = sideHistory[square];
+				}
+				// insertion sort; ties keep the row-by-row order
+				int i = count++;
+				for (; i > 0 && score[i - 1] < s; i--) {
+					list[i] = list[i - 1];
+					score[i] = score[i - 1];
+				}
+				list[i] = square;
+				score[i] = s;
+			}
+			return count;
+		}
+
+		private void rememberCutoff(boolean whiteTurn, int ply, int square, int depth) {
+			if ((CORNERS & (1L << square)) != 0) {
+				return;  // tried early anyway
+			}
+			if (killers[ply][0] != square) {
+				killers[ply][1] = killers[ply][0];
+				killers[ply][0] = square;
+			}
+			int[] sideHistory = history[whiteTurn ? 0 : 1];
+			sideHistory[square] += depth * depth;
+			if (sideHistory[square] >= KILLER_SCORE) {
+				for (int i = 0; i < sideHistory.length; i++) {
+					sideHistory[i] >>= 1;
+				}
+			}
+		}
+	}
+
+	// Lazy SMP: helper threads run the same iterative deepening on the same position as the
+	// main Searcher, sharing nothing but the transposition table.  Their results are thrown
+	// away; what they leave in the table lets the main search skip work, and half of them
+	// start a move deeper so they tend to get ahead of it.  The answer is the main search's,
+	// so a search to a given depth has the same value with any number of threads (the move
+	// may differ between equally good ones).
+	static final class ParallelSearcher {
+		private final TranspositionTable table;
+		private final Searcher[] searchers;  // searchers[0] is the main search
+
+		ParallelSearcher(int threads, int tableBits) {
+			table = new TranspositionTable(tableBits);
+			searchers = new Searcher[Math.max(1, threads)];
+			for (int i = 0; i < searchers.length; i++) {
+				searchers[i] = new Searcher(table);
+			}
+		}
+
+		// as Searcher.bestMove(); value and depth are in main().  The helpers keep to the same
+		// clock, so they solve from as many empties as the main search.  A root that will be
+		// solved gets none: the solver keeps no table, so they would only take its time.
+		Move bestMove(int[][] board, boolean whiteTurn, int maxDepth, long millis) {
+			table.newGeneration();
+			int empties = 64 - Long.bitCount(bitsOf(board, WHITE) | bitsOf(board, BLACK));
+			boolean solved = millis == 0 && maxDepth >= empties && empties <= ENDGAME_EMPTIES;
+			Thread[] helpers = new Thread[solved ? 0 : searchers.length - 1];
+			for (int i = 0; i < helpers.length; i++) {
+				Searcher helper = searchers[i + 1];
+				int firstDepth = 1 + (i & 1);
+				helper.abort = false;
+				helpers[i] = new Thread(() -> helper.deepen(board, whiteTurn, firstDepth, maxDepth, millis),
+						"othello-helper-" + (i + 1));
+				helpers[i].start();
+			}
+			Move best = searchers[0].deepen(board, whiteTurn, 1, maxDepth, millis);
+			for (int i = 0; i < helpers.length; i++) {
+				searchers[i + 1].abort = true;
+			}
+			for (Thread t : helpers) {
+				try {
+					t.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("interrupted waiting for search helpers", e);
+				}
+			}
+			return best;
+		}
+
+		Searcher main() {
+			return searchers[0];
+		}
+
+		// one line per thread, after bestMove()
+		String nodeRates() {
+			StringBuilder sb = new StringBuilder();
+			long total = 0;
+			for (int i = 0; i < searchers.length; i++) {
+				Searcher s = searchers[i];
+				total += s.nodes;
+				sb.append(i == 0 ? "main" : "helper " + i).append(": ").append(s.nodes).append(" nodes, ")
+						.append(s.nanos == 0 ? 0 : s.nodes * 1000000000L / s.nanos).append(" nodes/s\n");
+			}
+			long nanos = searchers[0].nanos;
+			sb.append("total: ").append(total).append(" nodes, ")
+					.append(nanos == 0 ? 0 : total * 1000000000L / nanos).append(" nodes/s");
+			return sb.toString();
+		}
+	}
+
+	// The 8 rotations and reflections of the board, as bitboards.  Transform t applies a flip
+	// about the main diagonal (t & 4), then left-right (t & 2), then top-bottom (t & 1);
+	// untransform() undoes them in the opposite order.
+	static long transform(long bits, int t) {
+		if ((t & 4) != 0) {
+			bits = flipDiagonal(bits);
+		}
+		if ((t & 2) != 0) {
+			bits = mirrorColumns(bits);
+		}
+		if ((t & 1) != 0) {
+			bits = Long.reverseBytes(bits);  // one byte per row
+		}
+		return bits;
+	}
+
+	static long untransform(long bits, int t) {
+		if ((t & 1) != 0) {
+			bits = Long.reverseBytes(bits);
+		}
+		if ((t & 2) != 0) {
+			bits = mirrorColumns(bits);
+		}
+		if ((t & 4) != 0) {
+			bits = flipDiagonal(bits);
+		}
+		return bits;
+	}
+
+	// column c to column 7 - c: reverses the bits of every byte
+	static long mirrorColumns(long bits) {
+		bits = ((bits >>> 1) & 0x5555555555555555L) | ((bits & 0x5555555555555555L) << 1);
+		bits = ((bits >>> 2) & 0x3333333333333333L) | ((bits & 0x3333333333333333L) << 2);
+		return ((bits >>> 4) & 0x0f0f0f0f0f0f0f0fL) | ((bits & 0x0f0f0f0f0f0f0f0fL) << 4);
+	}
+
+	// (row, col) to (col, row), by swapping ever smaller blocks across the diagonal
+	static long flipDiagonal(long bits) {
+		long t = 0x0f0f0f0f00000000L & (bits ^ (bits << 28));
+		bits ^= t ^ (t >>> 28);
+		t = 0x3333000033330000L & (bits ^ (bits << 14));
+		bits ^= t ^ (t >>> 14);
+		t = 0x5500550055005500L & (bits ^ (bits << 7));
+		return bits ^ t ^ (t >>> 7);
+	}
+
+	// the transform under which the position has the smallest key; see OpeningBook
+	static int canonicalTransform(long white, long black, boolean whiteTurn) {
+		int best = 0;
+		long bestKey = 0;
+		for (int t = 0; t < 8; t++) {
+			long key = new Position(transform(white, t), transform(black, t)).key(whiteTurn);
+			if (t == 0 || key < bestKey) {
+				best = t;
+				bestKey = key;
+			}
+		}
+		return best;
+	}
+
+	// Opening book: 16-byte records sorted by key, read through a memory-mapped buffer with a
+	// binary search.  The key is the position's canonical one, the smallest Zobrist key (side
+	// to move included) over the 8 symmetries of the board, so one record serves every
+	// symmetric copy.  A record holds the best move in that canonical orientation and its
+	// value for white, as searched to the book's depth when it was built.
+	static final class OpeningBook {
+		static final int MAGIC = 0x4f424b31;  // "OBK1"
+		static final int HEADER = 16;  // magic, records, plies, depth
+		static final int RECORD = 16;  // key (8), value (4), move (1), unused (3)
+
+		private final ByteBuffer buffer;
+		private final int count;
+		final int plies;
+		final int depth;
+
+		private OpeningBook(ByteBuffer buffer, int count, int plies, int depth) {
+			this.buffer = buffer;
+			this.count = count;
+			this.plies = plies;
+			this.depth = depth;
+		}
+
+		static OpeningBook open(String fileName) throws IOException {
+			FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+			try {
+				// the mapping stays valid after the channel is closed
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC) {
+					throw new IOException(fileName + " is not an opening book");
+				}
+				int count = buffer.getInt(4);
+				if ((long) HEADER + (long) count * RECORD != buffer.capacity()) {
+					throw new IOException(fileName + " is corrupt");
+				}
+				return new OpeningBook(buffer, count, buffer.getInt(8), buffer.getInt(12));
+			} finally {
+				channel.close();
+			}
+		}
+
+		// the book move for the side to move, or null if the position is not in the book
+		Move lookup(int[][] board, boolean whiteTurn) {
+			long white = bitsOf(board, WHITE);
+			long black = bitsOf(board, BLACK);
+			int t = canonicalTransform(white, black, whiteTurn);
+			long key = new Position(transform(white, t), transform(black, t)).key(whiteTurn);
+			int lo = 0;
+			int hi = count - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				long midKey = buffer.getLong(HEADER + mid * RECORD);
+				if (midKey < key) {
+					lo = mid + 1;
+				} else if (midKey > key) {
+					hi = mid - 1;
+				} else {
+					int square = buffer.get(HEADER + mid * RECORD + 12);
+					long move = untransform(1L << square, t);
+					// a key collision could name any square; only a legal move will do
+					long legal = whiteTurn ? legalMoves(white, black) : legalMoves(black, white);
+					if ((move & legal) == 0) {
+						return null;
+					}
+					square = Long.numberOfTrailingZeros(move);
+					return new Move(square / NUM_COLUMNS, square % NUM_COLUMNS);
+				}
+			}
+			return null;
+		}
+
+		// Searches every position up to 'plies' moves from the start, one copy per symmetry,
+		// to 'depth' moves ahead, and writes the book.  Positions where the side to move has
+		// to pass are left out; their moves are not a choice.
+		static void build(String fileName, int plies, int depth) throws IOException {
+			HashMap<Long, long[]> positions = new HashMap<Long, long[]>();
+			long white = (1L << (3 * NUM_COLUMNS + 3)) | (1L << (4 * NUM_COLUMNS + 4));
+			long black = (1L << (3 * NUM_COLUMNS + 4)) | (1L << (4 * NUM_COLUMNS + 3));
+			// black moves first
+			collect(white, black, false, plies, positions);
+			Long[] keys = positions.keySet().toArray(new Long[0]);
+			Arrays.sort(keys);
+			Searcher searcher = new Searcher(TABLE_BITS);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(keys.length);
+				out.writeInt(plies);
+				out.writeInt(depth);
+				for (Long key : keys) {
+					long[] p = positions.get(key);
+					boolean whiteTurn = p[2] != 0;
+					Move best = searcher.bestMove(boardOf(p[0], p[1]), whiteTurn, depth, 0);
+					out.writeLong(key);
+					out.writeFloat(searcher.value);
+					out.writeByte(best.row * NUM_COLUMNS + best.col);
+					out.write(new byte[RECORD - 13]);
+				}
+			} finally {
+				out.close();
+			}
+		}
+
+		// canonical copies of the positions within 'plies' moves, by key
+		private static void collect(long white, long black, boolean whiteTurn, int plies,
+				HashMap<Long, long[]> positions) {
+			long own = whiteTurn ? white : black;
+			long opp = whiteTurn ? black : white;
+			long moves = legalMoves(own, opp);
+			if (moves == 0) {
+				if (legalMoves(opp, own) != 0) {
+					collect(white, black, !whiteTurn, plies, positions);
+				}
+				return;
+			}
+			int t = canonicalTransform(white, black, whiteTurn);
+			long canonicalWhite = transform(white, t);
+			long canonicalBlack = transform(black, t);
+			long key = new Position(canonicalWhite, canonicalBlack).key(whiteTurn);
+			if (positions.containsKey(key)) {
+				// and everything after it: a position is always the same number of moves from
+				// the start (each adds a disc), so it was followed as far the first time
+				return;
+			}
+			positions.put(key, new long[] {canonicalWhite, canonicalBlack, whiteTurn ? 1 : 0});
+			if (plies == 0) {
+				return;
+			}
+			for (long m = moves; m != 0; m &= m - 1) {
+				long move = m & -m;
+				long flipped = flips(own, opp, move);
+				if (whiteTurn) {
+					collect(white ^ move ^ flipped, black ^ flipped, false, plies - 1, positions);
+				} else {
+					collect(white ^ flipped, black ^ move ^ flipped, true, plies - 1, positions);
+				}
+			}
+		}
+	}
+
+	static int[][] boardOf(long white, long black) {
+		int[][] board = new int[NUM_COLUMNS][NUM_COLUMNS];
+		for (int square = 0; square < 64; square++) {
+			if ((white & (1L << square)) != 0) {
+				board[square / NUM_COLUMNS][square % NUM_COLUMNS] = WHITE;
+			} else if ((black & (1L << square)) != 0) {
+				board[square / NUM_COLUMNS][square % NUM_COLUMNS] = BLACK;
+			}
+		}
+		return board;
+	}
+
+	// Perft: the number of positions 'depth' moves on, to check move generators against
+	// each other (and against published counts from the start: 4, 12, 56, 244, 1396, 8200,
+	// 55092, 390216, 3005288, 24571284).  A pass counts as a move; a finished game counts
+	// once wherever it ends.  This one uses generateLegalMoves() and play(), as given.
+	static long perft(int[][] board, boolean whiteTurn, int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		ArrayList<Move> legalMoves = generateLegalMoves(board, whiteTurn);
+		if (legalMoves.isEmpty()) {
+			if (generateLegalMoves(board, !whiteTurn).isEmpty()) {
+				return 1;
+			}
+			return perft(board, !whiteTurn, depth - 1);
+		}
+		long count = 0;
+		for (Move m : legalMoves) {
+			count += perft(play(board, m, whiteTurn), !whiteTurn, depth - 1);
+		}
+		return count;
+	}
+
+	// the same count on bitboards, for the side with discs 'own'
+	static long perft(long own, long opp, int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		long moves = legalMoves(own, opp);
+		if (moves == 0) {
+			if (legalMoves(opp, own) == 0) {
+				return 1;
+			}
+			return perft(opp, own, depth - 1);
+		}
+		if (depth == 1) {
+			return Long.bitCount(moves);
+		}
+		long count = 0;
+		for (long m = moves; m != 0; m &= m - 1) {
+			long move = m & -m;
+			long flipped = flips(own, opp, move);
+			count += perft(opp ^ flipped, own ^ flipped ^ move, depth - 1);
+		}
+		return count;
+	}
+
+	// "perft N [FILE...]": counts to each depth up to N with both generators, from the start
+	// (black to move) and from the board in each input FILE (white to move, as in main)
+	static void perftMode(String[] args) {
+		int maxDepth = Integer.parseInt(args[1]);
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<int[][]> boards = new ArrayList<int[][]>();
+		ArrayList<Boolean> turns = new ArrayList<Boolean>();
+		int[][] start = new int[NUM_COLUMNS][NUM_COLUMNS];
+		start[3][3] = WHITE;
+		start[3][4] = BLACK;
+		start[4][3] = BLACK;
+		start[4][4] = WHITE;
+		names.add("start");
+		boards.add(start);
+		turns.add(false);
+		for (int i = 2; i < args.length; i++) {
+			try {
+				Scanner in = new Scanner(new FileReader(args[i]));
+				readDepth(in);
+				names.add(args[i]);
+				boards.add(readBoard(in));
+				turns.add(WHITE_TO_PLAY);
+				in.close();
+			} catch (FileNotFoundException e) {
+				System.err.println("Could not read " + args[i]);
+				System.exit(0);
+			}
+		}
+		for (int b = 0; b < boards.size(); b++) {
+			int[][] board = boards.get(b);
+			boolean whiteTurn = turns.get(b);
+			long own = bitsOf(board, whiteTurn ? WHITE : BLACK);
+			long opp = bitsOf(board, whiteTurn ? BLACK : WHITE);
+			for (int depth = 1; depth <= maxDepth; depth++) {
+				long t0 = System.nanoTime();
+				long fast = perft(own, opp, depth);
+				long t1 = System.nanoTime();
+				long slow = perft(board, whiteTurn, depth);
+				long t2 = System.nanoTime();
+				System.out.println(names.get(b) + " depth " + depth + ": " + fast
+						+ " (" + perSecond(fast, t1 - t0) + " leaves/s; given generator "
+						+ perSecond(slow, t2 - t1) + " leaves/s)"
+						+ (fast == slow ? "" : " MISMATCH: given generator counts " + slow));
+			}
+		}
+	}
+
+	static long perSecond(long count, long nanos) {
+		return nanos == 0 ? 0 : (long) (count * 1e9 / nanos);
+	}
+
+	// Evaluates every record in the stream on a pool of threads, paying JVM startup and JIT
+	// warm-up once.  A record is what main reads, a depth line and a board (white to move),
+	// with blank lines allowed between records; values are written one per line in input
+	// order, as main prints them.  Each worker thread has its own Searcher and table.  At
+	// most a few records per thread are read ahead, into a ring of reused board buffers, so
+	// memory stays flat on long streams.  A bad record ends the batch with an IOException
+	// naming it, once the values of every record before it have been written.
+	static void analyzeBatch(BufferedReader in, BufferedWriter out, int threads) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ThreadLocal<Searcher> searchers = ThreadLocal.withInitial(() -> new Searcher(BATCH_TABLE_BITS));
+		int window = 4 * threads;
+		// the records still being searched, and the one being read
+		int[][][] boards = new int[window + 1][NUM_COLUMNS][NUM_COLUMNS];
+		ArrayDeque<Future<Float>> pending = new ArrayDeque<Future<Float>>();
+		int read = 0;
+		int written = 0;
+		try {
+			while (true) {
+				int[][] board = boards[read % boards.length];
+				int depth;
+				try {
+					depth = readRecord(in, board, read + 1);
+				} catch (IOException e) {
+					while (!pending.isEmpty()) {
+						writeValue(out, ++written, pending.poll());
+					}
+					throw e;
+				}
+				if (depth < 0) {
+					break;
+				}
+				read++;
+				pending.add(pool.submit(() -> searchers.get().value(board, WHITE_TO_PLAY, depth)));
+				if (pending.size() >= window) {
+					writeValue(out, ++written, pending.poll());
+				}
+			}
+			while (!pending.isEmpty()) {
+				writeValue(out, ++written, pending.poll());
+			}
+		} finally {
+			pool.shutdownNow();
+			out.flush();
+		}
+	}
+
+	// reads the next record's board into 'board' and returns its depth, or -1 at the end
+	static int readRecord(BufferedReader in, int[][] board, int number) throws IOException {
+		String line;
+		do {
+			line = in.readLine();
+			if (line == null) {
+				return -1;
+			}
+		} while (line.trim().isEmpty());
+		int depth;
+		try {
+			depth = Integer.parseInt(line.trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("record " + number + ": the first line must be the search depth");
+		}
+		if (depth < 0) {
+			throw new IOException("record " + number + ": negative search depth " + depth);
+		}
+		for (int r = 0; r < NUM_COLUMNS; r++) {
+			line = in.readLine();
+			if (line == null || line.length() < NUM_COLUMNS) {
+				throw new IOException("record " + number + ": board cut short");
+			}
+			for (int c = 0; c < NUM_COLUMNS; c++) {
+				char token = line.charAt(c);
+				if (token == 'W') {
+					board[r][c] = WHITE;
+				} else if (token == 'B') {
+					board[r][c] = BLACK;
+				} else if (token == '-') {
+					board[r][c] = NOBODY;
+				} else {
+					throw new IOException("record " + number + ": unrecognized token, " + token);
+				}
+			}
+		}
+		return depth;
+	}
+
+	private static void writeValue(BufferedWriter out, int number, Future<Float> pending)
+			throws IOException {
+		float value;
+		try {
+			value = pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted waiting for record " + number, e);
+		} catch (ExecutionException e) {
+			throw new IOException("record " + number + " failed", e.getCause());
+		}
+		out.write(Float.toString(value));
+		out.write('\n');
+	}
+
     // Handy for debugging!  And used by the interactive player below.
 	static void printBoard(int[][] board) {
 		for (int r = 0; r < NUM_COLUMNS; r++) {
@@ -336,29 +1920,24 @@ public class OthelloSolver {
     // The rest of the code here is for the interactive Othello player.  You don't need to
     // touch it or use it.
     // ------------------------------------------------------------------------------------
-	static void play() {
+	static void play(OpeningBook book, PatternEvaluator evaluator) {
 		int[][] board = new int[NUM_COLUMNS][NUM_COLUMNS];
 		board[3][3] = WHITE;
 		board[3][4] = BLACK;
 		board[4][3] = BLACK;
 		board[4][4] = WHITE;
 		Scanner myScanner = new Scanner(System.in);
+		Searcher searcher = new Searcher(TABLE_BITS);
+		searcher.evaluator = evaluator;
 		while(checkGameOver(board) == NOBODY) {
 			ArrayList<Move> legalMoves = generateLegalMoves(board, true);
 			if (legalMoves.size() > 0) {
 				System.out.println("Thinking...");
-				float bestVal = Float.NEGATIVE_INFINITY;
-				Move bestMove = null;
-				for (Move m : legalMoves) {
-					int[][] newBoard = play(board, m, true);
-					float moveVal = minimax_value(newBoard, true, DEMO_SEARCH_DEPTH,
-												Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
-					if (moveVal > bestVal) {
-						bestMove = m;
-						bestVal = moveVal;
-					}
+				Move bestMove = book == null ? null : book.lookup(board, true);
+				if (bestMove == null) {
+					bestMove = searcher.bestMove(board, true, Integer.MAX_VALUE, DEMO_MOVE_MILLIS);
 				}
-				board = play(board, bestMove, true);
+				makeMove(board, bestMove, true);
 				printBoard(board);
 				System.out.println();
 			} else {
@@ -367,7 +1946,7 @@ public class OthelloSolver {
 			legalMoves = generateLegalMoves(board, false);
 			if (legalMoves.size() > 0) {
 				Move playerMove = getPlayerMove(board, legalMoves, myScanner);
-				board = play(board, playerMove, false);
+				makeMove(board, playerMove, false);
 				printBoard(board);
 			} else {
 				System.out.println("Black has no legal moves; skipping turn...");
@@ -0,0 +1,369 @@
+// JMH benchmarks for OthelloSolver: move generation (the given generateLegalMoves()/play()
+// next to the bitboard legalMoves()/makeMove()), evaluationFunction(), perft, and whole
+// minimax_value() searches at fixed depths, on positions from seeded random games.
+//
+// There is no build file, so compile against the JMH jars by hand.  These are the four
+// from Maven Central, each at https://repo1.maven.org/maven2/GROUP/ARTIFACT/VERSION/
+// (GROUP with its dots as slashes): org.openjdk.jmh jmh-core and jmh-generator-annprocess
+// 1.37, and jmh-core's runtime dependencies net.sf.jopt-simple jopt-simple 5.0.4 and
+// org.apache.commons commons-math3 3.6.1.  With them in the repo root, from there (the
+// annotation processor in jmh-generator-annprocess writes the generated harness):
+//
+//   javac -d out hw2/OthelloSolver.java
+//   javac -cp out:jmh-core-1.37.jar:jmh-generator-annprocess-1.37.jar -d out hw2/bench/OthelloSolverBench.java
+//   java -cp out:jmh-core-1.37.jar:jopt-simple-5.0.4.jar:commons-math3-3.6.1.jar bench.OthelloSolverBench
+//
+// main() turns on the GC profiler, so every result comes with gc.alloc.rate and
+// gc.alloc.rate.norm (bytes per operation).  perft and minimax also report a "nodes" rate,
+// positions per second, next to operations per second.  minimax runs on Positions and a
+// transposition table made once in setup, as minimax_value(int[][]) does from 4 plies up;
+// the table is emptied before each search, outside the measurement.
+// Extra JMH options go after the class name, e.g. "bench.OthelloSolverBench minimax -p depth=6".
+//
+// JMH will not run benchmarks from the default package, and a named package cannot see
+// OthelloSolver, so the solver is reached through method handles resolved once up front.
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OthelloSolverBench {
+    static final int WHITE = 1;
+    static final int BLACK = -1;
+    // seed for the random games, so every run benchmarks the same positions
+    static final long SEED = 20240917L;
+
+    // OthelloSolver's own methods, with its nested types erased to Object
+    static final MethodHandle GENERATE_LEGAL_MOVES;  // (board, whiteTurn) -> List of moves
+    static final MethodHandle PLAY;                  // (board, move, whiteTurn) -> new board
+    static final MethodHandle MAKE_MOVE;             // (board, move, whiteTurn) -> flipped
+    static final MethodHandle UNMAKE_MOVE;           // (board, move, flipped) -> void
+    static final MethodHandle BITS_OF;               // (board, color) -> bitboard
+    static final MethodHandle LEGAL_MOVES;           // (own, opp) -> bitboard
+    static final MethodHandle EVALUATION;            // (board) -> float
+    static final MethodHandle PERFT_GIVEN;           // (board, whiteTurn, depth) -> long
+    static final MethodHandle PERFT_BITBOARD;        // (own, opp, depth) -> long
+    static final MethodHandle NEW_POSITION;          // (board) -> Position
+    static final MethodHandle NEW_TABLE;             // (bits) -> TranspositionTable
+    static final MethodHandle CLEAR_TABLE;           // (table) -> void
+    static final MethodHandle SET_TABLE;             // (position, table) -> void
+    static final MethodHandle NODES;                 // (position) -> long, minimax_value() calls
+    static final MethodHandle MINIMAX;               // (position, whiteTurn, searchDepth, alpha, beta) -> float
+    static final MethodHandle SET_MAX_DEPTH;         // (int) -> void
+    static final int TABLE_BITS;
+    static {
+        try {
+            Class<?> solver = Class.forName("OthelloSolver");
+            Class<?> move = Class.forName("OthelloSolver$Move");
+            Class<?> position = Class.forName("OthelloSolver$Position");
+            Class<?> table = Class.forName("OthelloSolver$TranspositionTable");
+            GENERATE_LEGAL_MOVES = method(solver, "generateLegalMoves", int[][].class, boolean.class);
+            PLAY = method(solver, "play", int[][].class, move, boolean.class);
+            MAKE_MOVE = method(solver, "makeMove", int[][].class, move, boolean.class);
+            UNMAKE_MOVE = method(solver, "unmakeMove", int[][].class, move, long.class);
+            BITS_OF = method(solver, "bitsOf", int[][].class, int.class);
+            LEGAL_MOVES = method(solver, "legalMoves", long.class, long.class);
+            EVALUATION = method(solver, "evaluationFunction", int[][].class);
+            PERFT_GIVEN = method(solver, "perft", int[][].class, boolean.class, int.class);
+            PERFT_BITBOARD = method(solver, "perft", long.class, long.class, int.class);
+            NEW_POSITION = erase(MethodHandles.lookup().unreflectConstructor(
+                    accessible(position.getDeclaredConstructor(int[][].class))));
+            NEW_TABLE = erase(MethodHandles.lookup().unreflectConstructor(
+                    accessible(table.getDeclaredConstructor(int.class))));
+            CLEAR_TABLE = method(table, "clear");
+            SET_TABLE = erase(MethodHandles.lookup().unreflectSetter(
+                    accessible(position.getDeclaredField("table"))));
+            NODES = erase(MethodHandles.lookup().unreflectGetter(
+                    accessible(position.getDeclaredField("nodes"))));
+            MINIMAX = method(solver, "minimax_value", position, boolean.class, int.class,
+                    float.class, float.class);
+            SET_MAX_DEPTH = MethodHandles.lookup().unreflectSetter(
+                    accessible(solver.getDeclaredField("MAX_DEPTH")));
+            TABLE_BITS = accessible(solver.getDeclaredField("TABLE_BITS")).getInt(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static MethodHandle method(Class<?> owner, String name, Class<?>... parameters)
+            throws ReflectiveOperationException {
+        Method m = owner.getDeclaredMethod(name, parameters);
+        return erase(MethodHandles.lookup().unreflect(accessible(m)));
+    }
+
+    static <T extends AccessibleObject> T accessible(T member) {
+        member.setAccessible(true);
+        return member;
+    }
+
+    // reference types other than int[][] become Object
+    static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            type = type.changeParameterType(i, erased(type.parameterType(i)));
+        }
+        return handle.asType(type.changeReturnType(erased(type.returnType())));
+    }
+
+    static Class<?> erased(Class<?> c) {
+        if (c.isPrimitive() || c == int[][].class) {
+            return c;
+        }
+        return Object.class;
+    }
+
+    static int[][] start() {
+        int[][] board = new int[8][8];
+        board[3][3] = WHITE;
+        board[3][4] = BLACK;
+        board[4][3] = BLACK;
+        board[4][4] = WHITE;
+        return board;
+    }
+
+    static List<?> legalMoves(int[][] board, boolean whiteTurn) throws Throwable {
+        return (List<?>) (Object) GENERATE_LEGAL_MOVES.invokeExact(board, whiteTurn);
+    }
+
+    // A position 'plies' random moves into a game, or fewer if the game ends first;
+    // turn[0] is set to whether white is to move
+    static int[][] randomGame(int plies, Random random, boolean[] turn) {
+        try {
+            int[][] board = start();
+            boolean whiteTurn = false;  // black moves first
+            for (int i = 0; i < plies; i++) {
+                List<?> moves = legalMoves(board, whiteTurn);
+                if (moves.isEmpty()) {
+                    whiteTurn = !whiteTurn;
+                    moves = legalMoves(board, whiteTurn);
+                    if (moves.isEmpty()) {
+                        break;
+                    }
+                }
+                Object move = moves.get(random.nextInt(moves.size()));
+                MAKE_MOVE.invoke(board, move, whiteTurn);  // invoke, as the flips aren't needed
+                whiteTurn = !whiteTurn;
+            }
+            turn[0] = whiteTurn;
+            return board;
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+
+    // A spread of positions from the opening to the endgame, each with a legal move to play
+    @State(Scope.Thread)
+    public static class Boards {
+        int[][][] boards = new int[64][][];
+        boolean[] whiteTurn = new boolean[64];
+        Object[] moves = new Object[64];
+        int next;
+
+        @Setup
+        public void setup() throws Throwable {
+            Random random = new Random(SEED);
+            boolean[] turn = new boolean[1];
+            for (int i = 0; i < boards.length; i++) {
+                List<?> legal;
+                do {
+                    boards[i] = randomGame(4 + random.nextInt(52), random, turn);
+                    legal = legalMoves(boards[i], turn[0]);
+                } while (legal.isEmpty());
+                whiteTurn[i] = turn[0];
+                moves[i] = legal.get(random.nextInt(legal.size()));
+            }
+        }
+
+        int next() {
+            next = (next + 1) & (boards.length - 1);
+            return next;
+        }
+    }
+
+    // perft from the start with the given generator, or the bitboard one
+    @State(Scope.Thread)
+    public static class Perft {
+        @Param({"6", "8"})
+        public int depth;
+
+        @Param({"bitboard", "given"})
+        public String generator;
+    }
+
+    // Whole searches, white to move as in main, from midgame positions
+    @State(Scope.Thread)
+    public static class Search {
+        @Param({"2", "4", "6"})
+        public int depth;
+
+        Object[] positions = new Object[16];
+        Object table;  // null below 4 plies, as in minimax_value(int[][])
+        int next;
+
+        @Setup
+        public void setup() throws Throwable {
+            Random random = new Random(SEED + depth);
+            boolean[] turn = new boolean[1];
+            table = depth >= 4 ? (Object) NEW_TABLE.invokeExact(TABLE_BITS) : null;
+            for (int i = 0; i < positions.length; i++) {
+                int[][] board;
+                do {
+                    board = randomGame(16 + random.nextInt(24), random, turn);
+                } while (legalMoves(board, true).isEmpty());
+                positions[i] = (Object) NEW_POSITION.invokeExact(board);
+                SET_TABLE.invokeExact(positions[i], table);
+            }
+            SET_MAX_DEPTH.invokeExact(depth);
+        }
+
+        // or every search after the first would be answered from the table; a search takes
+        // long enough (0.5 ms and up from 4 plies) for a per-invocation setup to be fair
+        @Setup(Level.Invocation)
+        public void clearTable() throws Throwable {
+            if (table != null) {
+                CLEAR_TABLE.invokeExact(table);
+            }
+        }
+
+        Object next() {
+            next = (next + 1) & (positions.length - 1);
+            return positions[next];
+        }
+    }
+
+    // JMH reports a public field of an OPERATIONS counter as a rate, here positions/s
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object generateLegalMoves(Boards state) throws Throwable {
+        int i = state.next();
+        return (Object) GENERATE_LEGAL_MOVES.invokeExact(state.boards[i], state.whiteTurn[i]);
+    }
+
+    // the bitboard generator, including reading the board into bitboards
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long legalMovesBitboard(Boards state) throws Throwable {
+        int i = state.next();
+        int own = state.whiteTurn[i] ? WHITE : BLACK;
+        long ownBits = (long) BITS_OF.invokeExact(state.boards[i], own);
+        long oppBits = (long) BITS_OF.invokeExact(state.boards[i], -own);
+        return (long) LEGAL_MOVES.invokeExact(ownBits, oppBits);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int[][] play(Boards state) throws Throwable {
+        int i = state.next();
+        return (int[][]) PLAY.invokeExact(state.boards[i], state.moves[i], state.whiteTurn[i]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long makeUnmakeMove(Boards state) throws Throwable {
+        int i = state.next();
+        long flipped = (long) MAKE_MOVE.invokeExact(state.boards[i], state.moves[i], state.whiteTurn[i]);
+        UNMAKE_MOVE.invokeExact(state.boards[i], state.moves[i], flipped);
+        return flipped;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public float evaluationFunction(Boards state) throws Throwable {
+        return (float) EVALUATION.invokeExact(state.boards[state.next()]);
+    }
+
+    // perfts per second, plus leaves/s
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long perft(Perft state, Nodes counters) throws Throwable {
+        int[][] board = start();
+        long leaves;
+        if (state.generator.equals("given")) {
+            leaves = (long) PERFT_GIVEN.invokeExact(board, false, state.depth);
+        } else {
+            long own = (long) BITS_OF.invokeExact(board, BLACK);
+            long opp = (long) BITS_OF.invokeExact(board, WHITE);
+            leaves = (long) PERFT_BITBOARD.invokeExact(own, opp, state.depth);
+        }
+        counters.nodes += leaves;
+        return leaves;
+    }
+
+    // searches per second, plus minimax_value() calls per second
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public float minimax(Search state, Nodes counters) throws Throwable {
+        Object position = state.next();
+        long before = (long) NODES.invokeExact(position);
+        float value = (float) MINIMAX.invokeExact(position, true, 0,
+                Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+        counters.nodes += (long) NODES.invokeExact(position) - before;
+        return value;
+    }
+
+    public static void main(String[] args) throws Exception {
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(new CommandLineOptions(args));
+        if (args.length == 0) {
+            options.include(OthelloSolverBench.class.getName());
+        }
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}